@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import japicmp.cmp.JarArchiveComparator;
+import japicmp.cmp.JarArchiveComparatorOptions;
+import japicmp.config.Options;
+import japicmp.model.JApiAnnotation;
+import japicmp.model.JApiClass;
+import japicmp.model.JApiConstructor;
+import japicmp.model.JApiField;
+import japicmp.model.JApiImplementedInterface;
+import japicmp.model.JApiMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the filtering of the comparison results.
+ *
+ * @author Andres Rodriguez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BinaryChangesBenchmark {
+    @Param({"SMALL", "MEDIUM", "CORE"})
+    private String scale;
+
+    private File directory;
+    private List<JApiClass> classes;
+    /**
+     * Original member lists, as filtering may modify them.
+     */
+    private List<Members> members;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDir();
+        final JarPair pair = JarPair.generate(JarPair.Scale.valueOf(scale), directory);
+        final Options options = pair.createOptions();
+        classes = new JarArchiveComparator(JarArchiveComparatorOptions.of(options)).compare(options.getOldArchives(), options.getNewArchives());
+        members = Lists.newArrayListWithCapacity(classes.size());
+        for (JApiClass c : classes) {
+            members.add(new Members(c));
+        }
+    }
+
+    /**
+     * Restores the comparison results before each invocation. Not measured.
+     */
+    @Setup(Level.Invocation)
+    public void restore() {
+        for (Members m : members) {
+            m.restore();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File f : directory.listFiles()) {
+            f.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public BinaryChanges filter() {
+        return BinaryChanges.of(classes);
+    }
+
+    /**
+     * Copy of the member lists of a class.
+     */
+    private static final class Members {
+        private final JApiClass klass;
+        private final List<JApiImplementedInterface> interfaces;
+        private final List<JApiField> fields;
+        private final List<JApiConstructor> constructors;
+        private final List<JApiMethod> methods;
+        private final List<JApiAnnotation> annotations;
+
+        Members(JApiClass klass) {
+            this.klass = klass;
+            this.interfaces = ImmutableList.copyOf(klass.getInterfaces());
+            this.fields = ImmutableList.copyOf(klass.getFields());
+            this.constructors = ImmutableList.copyOf(klass.getConstructors());
+            this.methods = ImmutableList.copyOf(klass.getMethods());
+            this.annotations = ImmutableList.copyOf(klass.getAnnotations());
+        }
+
+        void restore() {
+            reset(klass.getInterfaces(), interfaces);
+            reset(klass.getFields(), fields);
+            reset(klass.getConstructors(), constructors);
+            reset(klass.getMethods(), methods);
+            reset(klass.getAnnotations(), annotations);
+        }
+
+        private static <T> void reset(List<T> list, List<T> original) {
+            list.clear();
+            list.addAll(original);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.io.Files;
+import japicmp.config.Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the whole comparison: comparison engine plus filtering.
+ *
+ * @author Andres Rodriguez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ComparisonBenchmark {
+    @Param({"SMALL", "MEDIUM", "CORE"})
+    private String scale;
+    @Param({ComparisonEngine.JAPICMP, ComparisonEngine.SIGNATURE})
+    private String engine;
+    @Param({"1"})
+    private int parallelism;
+
+    private File directory;
+    private Options options;
+    /**
+     * Options comparing the new version with itself, as in a passing check.
+     */
+    private Options unchanged;
+    private ComparisonEngine comparisonEngine;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDir();
+        final JarPair pair = JarPair.generate(JarPair.Scale.valueOf(scale), directory);
+        options = pair.createOptions();
+        unchanged = pair.createOptions();
+        unchanged.getOldArchives().set(0, pair.getNewArchive());
+        comparisonEngine = ComparisonEngine.of(engine, new File(directory, "work"), parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        // The work directory keeps the archives extracted by the engines
+        for (File f : Files.fileTreeTraverser().postOrderTraversal(directory)) {
+            f.delete();
+        }
+    }
+
+    @Benchmark
+    public BinaryChanges compare() throws IOException {
+        return BinaryChanges.of(comparisonEngine.compare(options, null));
+    }
+
+    /**
+     * Full comparison of a passing check.
+     */
+    @Benchmark
+    public BinaryChanges compareUnchanged() throws IOException {
+        return BinaryChanges.of(comparisonEngine.compare(unchanged, null));
+    }
+
+    /**
+     * Fail-fast comparison of a passing check, which has to compare every class too.
+     */
+    @Benchmark
+    public BinaryChanges failFastUnchanged() throws IOException {
+        final BinaryChanges.Builder builder = BinaryChanges.builder();
+        comparisonEngine.compareUntilFailure(unchanged, null, builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.Lists;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoFailureException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the dependency filtering performed during artifact resolution.
+ *
+ * @author Andres Rodriguez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DependencyPolicyBenchmark {
+    /**
+     * Number of artifacts to filter.
+     */
+    @Param({"100", "10000"})
+    private int artifacts;
+    /**
+     * Number of entries in the include specification.
+     */
+    @Param({"10", "200"})
+    private int entries;
+
+    private List<Artifact> candidates;
+    private DependencyPolicy include;
+    private DependencyPolicy exclude;
+
+    @Setup
+    public void setUp() throws MojoFailureException {
+        candidates = Lists.newArrayListWithCapacity(artifacts);
+        for (int i = 0; i < artifacts; i++) {
+            candidates.add(new DefaultArtifact("org.example.g" + i % 50, "artifact-" + i, VersionRange.createFromVersion("1.0"),
+                    Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler("jar")));
+        }
+        // Half of the entries match whole groups, the other half single artifacts
+        final StringBuilder spec = new StringBuilder();
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                spec.append(',');
+            }
+            if (i % 2 == 0) {
+                spec.append("org.example.g").append(i);
+            } else {
+                spec.append("org.example.g").append(i % 50).append(':').append("artifact-").append(i * 7);
+            }
+        }
+        include = DependencyPolicy.of(DependencyPolicy.POLICY_INCLUDE + spec);
+        exclude = DependencyPolicy.of(DependencyPolicy.POLICY_EXCLUDE + spec);
+    }
+
+    @Benchmark
+    public int include() {
+        return count(include);
+    }
+
+    @Benchmark
+    public int exclude() {
+        return count(exclude);
+    }
+
+    private int count(DependencyPolicy policy) {
+        int n = 0;
+        for (Artifact a : candidates) {
+            if (policy.include(a)) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.ClassMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import japicmp.config.Options;
+import japicmp.model.AccessModifier;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static japicmp.cli.JApiCli.ClassPathMode.TWO_SEPARATE_CLASSPATHS;
+
+/**
+ * Pair of generated archives (old and new version) to benchmark the comparison pipeline. Four in every ten classes
+ * get an incompatible change (plain, accepted, ignored and restricted), so that every filtering path is used, and
+ * one more gets a compatible addition.
+ *
+ * @author Andres Rodriguez
+ */
+final class JarPair {
+    /**
+     * Sizes of the generated archives.
+     */
+    enum Scale {
+        /**
+         * A small plugin.
+         */
+        SMALL(5, 10),
+        /**
+         * A big plugin.
+         */
+        MEDIUM(20, 25),
+        /**
+         * Jenkins core.
+         */
+        CORE(100, 40);
+
+        private final int packages;
+        private final int classesPerPackage;
+
+        Scale(int packages, int classesPerPackage) {
+            this.packages = packages;
+            this.classesPerPackage = classesPerPackage;
+        }
+
+        int getClasses() {
+            return packages * classesPerPackage;
+        }
+    }
+
+    private static final String RESTRICTED = "org.kohsuke.accmod.Restricted";
+    private static final String NO_EXTERNAL_USE = "org.kohsuke.accmod.restrictions.NoExternalUse";
+    private static final int METHODS = 8;
+    private static final int FIELDS = 4;
+
+    /**
+     * Old version.
+     */
+    private final File oldArchive;
+    /**
+     * New version.
+     */
+    private final File newArchive;
+
+    /**
+     * Generates a pair of archives.
+     *
+     * @param scale     Size of the archives.
+     * @param directory Directory to write the archives to.
+     */
+    static JarPair generate(Scale scale, File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        final String name = scale.name().toLowerCase();
+        final JarPair pair = new JarPair(new File(directory, name + "-old.jar"), new File(directory, name + "-new.jar"));
+        try {
+            write(scale, pair.oldArchive, false);
+            write(scale, pair.newArchive, true);
+        } catch (CannotCompileException | NotFoundException e) {
+            throw new IOException("Unable to generate classes", e);
+        }
+        return pair;
+    }
+
+    private static void write(Scale scale, File archive, boolean newVersion) throws IOException, CannotCompileException, NotFoundException {
+        final ClassPool pool = new ClassPool(true);
+        try (JarOutputStream os = new JarOutputStream(new FileOutputStream(archive))) {
+            for (int p = 0; p < scale.packages; p++) {
+                CtClass previous = null;
+                for (int c = 0; c < scale.classesPerPackage; c++) {
+                    final CtClass klass = createClass(pool, String.format("org.example.p%d.C%d", p, c), previous, newVersion ? c % 10 : -1);
+                    os.putNextEntry(new JarEntry(klass.getName().replace('.', '/') + ".class"));
+                    os.write(klass.toBytecode());
+                    os.closeEntry();
+                    // Keep some hierarchy, but not too deep
+                    previous = c % 5 == 4 ? null : klass;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a class.
+     *
+     * @param change Kind of change to apply in the new version, {@code -1} for the old one.
+     */
+    private static CtClass createClass(ClassPool pool, String name, CtClass superclass, int change) throws CannotCompileException, NotFoundException {
+        final CtClass klass = pool.makeClass(name);
+        if (superclass != null) {
+            klass.setSuperclass(superclass);
+        }
+        final ConstPool cp = klass.getClassFile().getConstPool();
+        // Member names are unique in the hierarchy, so that removed members are not inherited
+        final String prefix = klass.getSimpleName().toLowerCase();
+        for (int i = 0; i < FIELDS; i++) {
+            if (change == 4 && i == 0) {
+                continue; // Removed field
+            }
+            klass.addField(CtField.make("public int " + prefix + "f" + i + ";", klass));
+        }
+        for (int i = 0; i < METHODS; i++) {
+            if (change > 0 && change < 4 && i == 0) {
+                continue; // Removed method
+            }
+            final CtMethod method = CtNewMethod.make("public int " + prefix + "m" + i + "(int a) { return a + " + i + "; }", klass);
+            if (i % 2 == 0) {
+                annotate(method.getMethodInfo(), new Annotation(Deprecated.class.getName(), cp));
+            }
+            klass.addMethod(method);
+        }
+        if (change == 5) {
+            klass.addMethod(CtNewMethod.make("public void added() {}", klass));
+        } else if (change == 2) {
+            annotate(klass.getClassFile(), new Annotation(AcceptBinaryIncompatibleChange.class.getName(), cp));
+        } else if (change == 3) {
+            annotate(klass.getClassFile(), new Annotation(IgnoreBinaryIncompatibleChange.class.getName(), cp));
+        } else if (change == 4) {
+            final Annotation restricted = new Annotation(RESTRICTED, cp);
+            final ArrayMemberValue value = new ArrayMemberValue(cp);
+            value.setValue(new MemberValue[]{new ClassMemberValue(NO_EXTERNAL_USE, cp)});
+            restricted.addMemberValue("value", value);
+            annotate(klass.getClassFile(), restricted);
+        }
+        return klass;
+    }
+
+    private static void annotate(ClassFile cf, Annotation annotation) {
+        cf.addAttribute(annotations(cf.getConstPool(), annotation));
+    }
+
+    private static void annotate(MethodInfo method, Annotation annotation) {
+        method.addAttribute(annotations(method.getConstPool(), annotation));
+    }
+
+    private static AnnotationsAttribute annotations(ConstPool cp, Annotation annotation) {
+        final AnnotationsAttribute attribute = new AnnotationsAttribute(cp, AnnotationsAttribute.visibleTag);
+        attribute.addAnnotation(annotation);
+        return attribute;
+    }
+
+    /**
+     * Constructor.
+     */
+    private JarPair(File oldArchive, File newArchive) {
+        this.oldArchive = oldArchive;
+        this.newArchive = newArchive;
+    }
+
+    File getOldArchive() {
+        return oldArchive;
+    }
+
+    File getNewArchive() {
+        return newArchive;
+    }
+
+    /**
+     * Creates the comparison options, as the check goal does.
+     */
+    Options createOptions() {
+        final Options options = new Options();
+        options.getOldArchives().add(oldArchive);
+        options.getNewArchives().add(newArchive);
+        options.setOutputOnlyModifications(true);
+        options.setAccessModifier(AccessModifier.PROTECTED);
+        options.setOutputOnlyBinaryIncompatibleModifications(true);
+        options.setIncludeSynthetic(true);
+        options.setIgnoreMissingClasses(true);
+        options.setClassPathMode(TWO_SEPARATE_CLASSPATHS);
+        return options;
+    }
+}
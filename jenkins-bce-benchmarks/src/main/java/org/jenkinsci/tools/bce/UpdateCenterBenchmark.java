@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the extraction of the baseline coordinates from an update center file.
+ *
+ * @author Andres Rodriguez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class UpdateCenterBenchmark {
+    /**
+     * Number of plugins in the update center.
+     */
+    @Param({"100", "1500"})
+    private int plugins;
+
+    private File directory;
+    private File updateCenter;
+    /**
+     * Plugin to look for, in the middle of the file.
+     */
+    private String artifactId;
+    private UpdateCenterIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDir();
+        updateCenter = new File(directory, "update-center.json");
+        try (Writer writer = Files.newWriter(updateCenter, Charsets.UTF_8)) {
+            writer.write("updateCenter.post(\n");
+            final JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("connectionCheckUrl").value("http://www.google.com/");
+            json.name("core").beginObject().name("name").value("core").name("version").value("1.642").endObject();
+            json.name("plugins").beginObject();
+            for (int i = 0; i < plugins; i++) {
+                writePlugin(json, i);
+            }
+            json.endObject();
+            json.name("updateCenterVersion").value("1");
+            json.endObject();
+            json.flush();
+            writer.write("\n);");
+        }
+        artifactId = "plugin-" + plugins / 2;
+        index = UpdateCenterIndex.of(updateCenter);
+    }
+
+    private static void writePlugin(JsonWriter json, int i) throws IOException {
+        final String name = "plugin-" + i;
+        json.name(name).beginObject();
+        json.name("buildDate").value("Dec 21, 2015");
+        json.name("dependencies").beginArray();
+        for (int d = 1; d <= i % 5; d++) {
+            json.beginObject();
+            json.name("name").value("plugin-" + (i + d) % 100);
+            json.name("optional").value(d % 2 == 0 ? "true" : "false");
+            json.name("version").value("1." + d);
+            json.endObject();
+        }
+        json.endArray();
+        json.name("developers").beginArray().beginObject().name("developerId").value("dev" + i).endObject().endArray();
+        json.name("excerpt").value("This plugin does something useful with the number " + i + " and a fairly long description.");
+        json.name("gav").value("org.jenkins-ci.plugins:" + name + ":1." + i);
+        json.name("labels").beginArray().value("misc").value("builder").endArray();
+        json.name("name").value(name);
+        json.name("requiredCore").value("1.580.1");
+        json.name("sha1").value("0123456789abcdef0123456789abcdef01234567");
+        json.name("title").value("Plugin " + i);
+        json.name("url").value("http://updates.jenkins-ci.org/download/plugins/" + name + "/1." + i + "/" + name + ".hpi");
+        json.name("version").value("1." + i);
+        json.name("wiki").value("https://wiki.jenkins-ci.org/display/JENKINS/" + name);
+        json.endObject();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File f : directory.listFiles()) {
+            f.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Streaming lookup, stopping as soon as the plugin is found.
+     */
+    @Benchmark
+    public String streamingLookup() throws IOException {
+        try (Reader reader = Files.newReader(updateCenter, Charsets.UTF_8)) {
+            return UpdateCenterParser.getGav(reader, artifactId);
+        }
+    }
+
+    /**
+     * Extraction of every plugin, as done to build the index.
+     */
+    @Benchmark
+    public Map<String, String> fullExtraction() throws IOException {
+        try (Reader reader = Files.newReader(updateCenter, Charsets.UTF_8)) {
+            return UpdateCenterParser.getGavs(reader);
+        }
+    }
+
+    /**
+     * Opening an up to date index.
+     */
+    @Benchmark
+    public UpdateCenterIndex indexOpen() throws IOException {
+        return UpdateCenterIndex.of(updateCenter);
+    }
+
+    /**
+     * Lookup in an open index.
+     */
+    @Benchmark
+    public String indexLookup() {
+        return index.get(artifactId);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+
+/**
+ * Base class for the Binary Compatibility Enforcement mojos.
+ *
+ * @author Andres Rodriguez
+ */
+abstract class AbstractBCEMojo extends AbstractMojo {
+    /**
+     * Current Maven Project.
+     */
+    @Parameter(defaultValue = "${project}")
+    MavenProject mavenProject;
+    /**
+     * Current Maven Session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    MavenSession session;
+    /**
+     * Project build directory.
+     */
+    @Parameter(property = "project.build.directory", required = true)
+    File projectBuildDir;
+
+    final void error(CharSequence s) {
+        getLog().error(s);
+    }
+
+    final void errorf(String s, Object... args) {
+        error(String.format(s, args));
+    }
+
+    final void warn(CharSequence s) {
+        getLog().warn(s);
+    }
+
+    final void warnf(String s, Object... args) {
+        warn(String.format(s, args));
+    }
+
+    final void info(CharSequence s) {
+        getLog().info(s);
+    }
+
+    final void infof(String s, Object... args) {
+        info(String.format(s, args));
+    }
+
+    final MojoFailureException failure(Throwable cause, String format, Object... args) {
+        return new MojoFailureException(String.format(format, args), cause);
+    }
+
+    final MojoFailureException failure(String format, Object... args) {
+        return new MojoFailureException(String.format(format, args));
+    }
+
+    /**
+     * @return Whether the current project is a Jenkins plugin.
+     */
+    final boolean isPlugin() {
+        // We will check core later
+        return "hpi".equals(mavenProject.getPackaging());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.AttributeInfo;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of API signature snapshots. A snapshot is an archive of stub class files containing only what binary
+ * compatibility depends on: public and protected classes and members, their annotations and the supertype
+ * hierarchy. Non-public supertypes of API classes are kept too, with their public and protected members, as those
+ * are inherited by the API classes. Method bodies, private and package private members and debugging information
+ * are removed, so the snapshot can be compared like a regular archive but is much smaller and cheaper to load.
+ *
+ * @author Andres Rodriguez
+ */
+final class ApiSnapshot {
+    /**
+     * Classifier of the attached snapshot artifact.
+     */
+    static final String CLASSIFIER = "bce-snapshot";
+    /**
+     * Version of the snapshot format, to be increased whenever the content of the snapshots changes.
+     */
+    static final int FORMAT = 1;
+    /**
+     * Class attributes not needed in a snapshot.
+     */
+    private static final Set<String> DISCARDED_ATTRIBUTES = ImmutableSet.of(
+            "SourceFile", "SourceDebugExtension", "BootstrapMethods"
+    );
+
+    /**
+     * Not instantiable.
+     */
+    private ApiSnapshot() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Writes the snapshot of an archive.
+     *
+     * @param source Archive to take the snapshot of.
+     * @param target Snapshot to write.
+     * @return The number of classes in the snapshot.
+     */
+    static int write(File source, File target) throws IOException {
+        final File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        // Classes in archive order, as the supertypes of the API classes are only known once every class is read
+        final Map<String, ClassFile> classes = Maps.newLinkedHashMap();
+        try (JarFile jar = new JarFile(source)) {
+            for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                final JarEntry entry = e.nextElement();
+                if (ClassArchives.getClassName(entry) == null) {
+                    continue;
+                }
+                try (InputStream is = jar.getInputStream(entry)) {
+                    final ClassFile cf = new ClassFile(new DataInputStream(new ByteArrayInputStream(ByteStreams.toByteArray(is))));
+                    if (!classes.containsKey(cf.getName())) {
+                        classes.put(cf.getName(), cf);
+                    }
+                }
+            }
+        }
+        final Set<String> included = getIncluded(classes);
+        try (JarOutputStream os = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(target)), new Manifest())) {
+            os.setLevel(Deflater.BEST_COMPRESSION);
+            for (ClassFile cf : classes.values()) {
+                if (included.contains(cf.getName())) {
+                    strip(cf);
+                    os.putNextEntry(new JarEntry(ClassArchives.getEntryName(cf.getName())));
+                    final DataOutputStream dos = new DataOutputStream(os);
+                    cf.write(dos);
+                    dos.flush();
+                    os.closeEntry();
+                }
+            }
+        }
+        return included.size();
+    }
+
+    /**
+     * Computes the classes included in the snapshot: the API classes and their supertypes in the archive.
+     */
+    private static Set<String> getIncluded(Map<String, ClassFile> classes) {
+        final Set<String> included = Sets.newHashSet();
+        final List<String> pending = Lists.newArrayList();
+        for (ClassFile cf : classes.values()) {
+            if (isApi(cf.getAccessFlags())) {
+                included.add(cf.getName());
+                pending.add(cf.getName());
+            }
+        }
+        while (!pending.isEmpty()) {
+            final ClassFile cf = classes.get(pending.remove(pending.size() - 1));
+            final List<String> supertypes = Lists.newArrayList(cf.getInterfaces());
+            supertypes.add(cf.getSuperclass());
+            for (String supertype : supertypes) {
+                if (supertype != null && classes.containsKey(supertype) && included.add(supertype)) {
+                    pending.add(supertype);
+                }
+            }
+        }
+        return included;
+    }
+
+    /**
+     * Removes from a class file everything that is not part of its API.
+     */
+    private static void strip(ClassFile cf) {
+        removeAttributes(cf.getAttributes());
+        for (Iterator<?> i = cf.getFields().iterator(); i.hasNext(); ) {
+            final FieldInfo f = (FieldInfo) i.next();
+            if (!isApi(f.getAccessFlags())) {
+                i.remove();
+            }
+        }
+        for (Iterator<?> i = cf.getMethods().iterator(); i.hasNext(); ) {
+            final MethodInfo m = (MethodInfo) i.next();
+            if (isApi(m.getAccessFlags())) {
+                m.removeCodeAttribute();
+            } else {
+                i.remove();
+            }
+        }
+        // Drop the constant pool entries that were only used by the removed elements.
+        cf.compact();
+    }
+
+    private static boolean isApi(int accessFlags) {
+        return AccessFlag.isPublic(accessFlags) || AccessFlag.isProtected(accessFlags);
+    }
+
+    private static void removeAttributes(List<?> attributes) {
+        for (Iterator<?> i = attributes.iterator(); i.hasNext(); ) {
+            if (DISCARDED_ATTRIBUTES.contains(((AttributeInfo) i.next()).getName())) {
+                i.remove();
+            }
+        }
+    }
+}
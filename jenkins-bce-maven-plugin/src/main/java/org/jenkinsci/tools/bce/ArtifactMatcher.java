@@ -0,0 +1,274 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Artifact predicate compiled from a list of patterns, with constant time lookups for exact patterns. Supported
+ * patterns are:
+ * <ul>
+ * <li>{@code <i>groupId</i>}: every artifact of the group.</li>
+ * <li>{@code <i>groupId</i>:<i>artifactId</i>}: a single artifact.</li>
+ * <li>{@code <i>groupId</i>:<i>artifactId</i>:<i>version</i>}: a single artifact, only in the versions of a
+ * Maven version range (e.g., {@code [1.0,2.0)}). A plain version matches only itself.</li>
+ * </ul>
+ * Group and artifact ids may contain the {@code *} and {@code ?} wildcards, which never match the {@code :}
+ * separator. A group ending in {@code .*} also matches the group before the wildcard, so {@code org.jenkins-ci.*}
+ * matches {@code org.jenkins-ci} and every group under it, and a single {@code *} matches every group.
+ * Exact patterns are kept in hash sets, group prefixes in a trie of group segments and any other pattern in a
+ * {@link GlobAutomaton}, so matching an artifact does not depend on the number of patterns.
+ *
+ * @author Andres Rodriguez
+ */
+final class ArtifactMatcher implements Predicate<Artifact> {
+    /**
+     * Group wildcard.
+     */
+    private static final String ANY = "*";
+    /**
+     * Group prefix wildcard suffix.
+     */
+    private static final String ANY_SUBGROUP = ".*";
+
+    /**
+     * Groups matched as a whole.
+     */
+    private final ImmutableSet<String> groups;
+    /**
+     * Artifacts matched, as {@code groupId:artifactId}.
+     */
+    private final ImmutableSet<String> artifacts;
+    /**
+     * Group prefixes.
+     */
+    private final Node prefixes;
+    /**
+     * Other patterns, on {@code groupId:artifactId}, with their version range ({@code null} for any version).
+     */
+    private final GlobAutomaton<VersionRange> globs;
+
+    /**
+     * Creates a builder.
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Constructor.
+     */
+    private ArtifactMatcher(Builder builder) {
+        this.groups = ImmutableSet.copyOf(builder.groups);
+        this.artifacts = ImmutableSet.copyOf(builder.artifacts);
+        this.prefixes = builder.prefixes;
+        this.globs = builder.globs;
+    }
+
+    @Override
+    public boolean apply(@Nullable Artifact artifact) {
+        if (artifact == null) {
+            return false;
+        }
+        final String groupId = artifact.getGroupId();
+        if (groups.contains(groupId)) {
+            return true;
+        }
+        final String key = groupId + ':' + artifact.getArtifactId();
+        if (artifacts.contains(key)) {
+            return true;
+        }
+        if (prefixes != null && prefixes.matches(groupId, artifact.getArtifactId())) {
+            return true;
+        }
+        if (globs != null) {
+            for (VersionRange range : globs.match(key)) {
+                if (range == null || (artifact.getVersion() != null && range.containsVersion(new DefaultArtifactVersion(artifact.getVersion())))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trie node of group segments.
+     */
+    private static final class Node {
+        /**
+         * Child nodes, indexed by group segment.
+         */
+        private final Map<String, Node> children = Maps.newHashMap();
+        /**
+         * Whether every artifact in the group of this node, and under it, matches.
+         */
+        private boolean all;
+        /**
+         * Artifacts matched in the group of this node and under it.
+         */
+        private final Set<String> artifactIds = Sets.newHashSet();
+
+        Node child(String segment) {
+            Node node = children.get(segment);
+            if (node == null) {
+                node = new Node();
+                children.put(segment, node);
+            }
+            return node;
+        }
+
+        /**
+         * Walks down the trie along the segments of a group, without splitting it.
+         */
+        boolean matches(String groupId, String artifactId) {
+            Node node = this;
+            int start = 0;
+            while (true) {
+                if (node.all || node.artifactIds.contains(artifactId)) {
+                    return true;
+                }
+                if (start > groupId.length()) {
+                    return false;
+                }
+                int end = groupId.indexOf('.', start);
+                if (end < 0) {
+                    end = groupId.length();
+                }
+                node = node.children.get(groupId.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                start = end + 1;
+            }
+        }
+    }
+
+    /**
+     * Builder of matchers.
+     */
+    static final class Builder {
+        private final Set<String> groups = Sets.newHashSet();
+        private final Set<String> artifacts = Sets.newHashSet();
+        private Node prefixes;
+        private GlobAutomaton<VersionRange> globs;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a group pattern.
+         *
+         * @return This builder.
+         */
+        Builder group(String groupId) {
+            if (isPrefix(groupId)) {
+                prefix(groupId).all = true;
+            } else if (GlobAutomaton.isGlob(groupId)) {
+                glob(groupId, ANY, null);
+            } else {
+                groups.add(groupId);
+            }
+            return this;
+        }
+
+        /**
+         * Adds an artifact pattern.
+         *
+         * @return This builder.
+         */
+        Builder artifact(String groupId, String artifactId) {
+            return artifact(groupId, artifactId, null);
+        }
+
+        /**
+         * Adds an artifact pattern restricted to a version range.
+         *
+         * @param range Version range, {@code null} for any version.
+         * @return This builder.
+         */
+        Builder artifact(String groupId, String artifactId, @Nullable VersionRange range) {
+            if (range != null || GlobAutomaton.isGlob(artifactId)) {
+                glob(groupId, artifactId, range);
+            } else if (isPrefix(groupId)) {
+                prefix(groupId).artifactIds.add(artifactId);
+            } else if (GlobAutomaton.isGlob(groupId)) {
+                glob(groupId, artifactId, null);
+            } else {
+                artifacts.add(groupId + ':' + artifactId);
+            }
+            return this;
+        }
+
+        ArtifactMatcher build() {
+            return new ArtifactMatcher(this);
+        }
+
+        /**
+         * @return Whether a group pattern is a prefix whose only wildcard is the last segment.
+         */
+        private static boolean isPrefix(String groupId) {
+            if (ANY.equals(groupId)) {
+                return true;
+            }
+            return groupId.endsWith(ANY_SUBGROUP) && !GlobAutomaton.isGlob(groupId.substring(0, groupId.length() - ANY_SUBGROUP.length()));
+        }
+
+        private void glob(String groupId, String artifactId, @Nullable VersionRange range) {
+            if (globs == null) {
+                globs = new GlobAutomaton<VersionRange>(':');
+            }
+            globs.add(groupId + ':' + artifactId, range);
+            // Group prefixes match the group itself, as in the trie
+            if (groupId.endsWith(ANY_SUBGROUP)) {
+                globs.add(groupId.substring(0, groupId.length() - ANY_SUBGROUP.length()) + ':' + artifactId, range);
+            }
+        }
+
+        /**
+         * @return The trie node of a group prefix pattern, created if needed.
+         */
+        private Node prefix(String groupId) {
+            if (prefixes == null) {
+                prefixes = new Node();
+            }
+            Node node = prefixes;
+            if (!ANY.equals(groupId)) {
+                for (String segment : groupId.substring(0, groupId.length() - ANY_SUBGROUP.length()).split("\\.")) {
+                    node = node.child(segment);
+                }
+            }
+            return node;
+        }
+    }
+}
@@ -23,35 +23,16 @@
  */
 package org.jenkinsci.tools.bce;
 
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
-import japicmp.cmp.JarArchiveComparator;
-import japicmp.cmp.JarArchiveComparatorOptions;
-import japicmp.config.Options;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import japicmp.model.*;
-import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.DefaultArtifact;
-import org.apache.maven.artifact.handler.DefaultArtifactHandler;
-import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
-import org.apache.maven.artifact.resolver.ArtifactResolutionException;
-import org.apache.maven.artifact.resolver.ArtifactResolver;
-import org.apache.maven.artifact.versioning.VersionRange;
-import org.apache.maven.plugin.AbstractMojo;
-import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.plugins.annotations.Component;
-import org.apache.maven.plugins.annotations.Mojo;
-import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.project.MavenProject;
-
-import javax.annotation.Nullable;
-import java.io.File;
+
 import java.util.Iterator;
 import java.util.List;
-
-import static japicmp.cli.JApiCli.ClassPathMode.TWO_SEPARATE_CLASSPATHS;
+import java.util.RandomAccess;
+import java.util.Set;
 
 /**
  * Object representing the detected binary incompatible changes.
@@ -64,25 +45,30 @@ final class BinaryChanges {
      */
     private final ImmutableList<JApiClass> changedClasses;
     /**
-     * Whether there are accepted changes.
+     * Classes with accepted changes.
+     */
+    private final ImmutableSet<String> acceptedClasses;
+    /**
+     * Classes with ignored changes.
      */
-    private final boolean accepted;
+    private final ImmutableSet<String> ignoredClasses;
     /**
-     * Whether there are ignored changes.
+     * Binary incompatible elements analyzed, each class followed by its members.
      */
-    private final boolean ignored;
+    private final ImmutableList<Entry> entries;
 
     /**
      * Factory method.
      */
     static BinaryChanges of(Iterable<JApiClass> classes) {
-        final Builder b = new Builder();
-        if (classes != null) {
-            for (JApiClass c : classes) {
-                b.add(c);
-            }
-        }
-        return new BinaryChanges(b);
+        return builder().addAll(classes).build();
+    }
+
+    /**
+     * @return A new builder.
+     */
+    static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -90,89 +76,385 @@ final class BinaryChanges {
      */
     private BinaryChanges(Builder builder) {
         this.changedClasses = builder.changedClasses.build();
-        this.accepted = builder.accepted;
-        this.ignored = builder.ignored;
+        this.acceptedClasses = ImmutableSet.copyOf(builder.acceptedClasses);
+        this.ignoredClasses = ImmutableSet.copyOf(builder.ignoredClasses);
+        this.entries = builder.entries.build();
     }
 
     public ImmutableList<JApiClass> getChangedClasses() {
         return changedClasses;
     }
 
+    public ImmutableSet<String> getAcceptedClasses() {
+        return acceptedClasses;
+    }
+
+    public ImmutableSet<String> getIgnoredClasses() {
+        return ignoredClasses;
+    }
+
+    public ImmutableList<Entry> getEntries() {
+        return entries;
+    }
+
     public boolean isAccepted() {
-        return accepted;
+        return !acceptedClasses.isEmpty();
     }
 
     public boolean isIgnored() {
-        return ignored;
+        return !ignoredClasses.isEmpty();
     }
 
     public boolean isEmpty() {
         return changedClasses.isEmpty();
     }
 
-    private static final class Builder {
+    /**
+     * Verdict on a binary incompatible element.
+     */
+    enum Verdict {
+        /** Unaccepted binary incompatible change. */
+        FAILED,
+        /** Class whose binary incompatible changes are all accepted, ignored or not for external use. */
+        PASSED,
+        /** Change accepted with {@code @Accept}. */
+        ACCEPTED,
+        /** Change ignored with {@code @Ignore}. */
+        IGNORED,
+        /** Element restricted with {@code NoExternalUse}, skipped. */
+        NO_EXTERNAL_USE
+    }
+
+    /**
+     * Kind of element of an entry.
+     */
+    enum Kind {
+        CLASS, INTERFACE, ANNOTATION, FIELD, CONSTRUCTOR, METHOD
+    }
+
+    /**
+     * Binary incompatible element of the report.
+     */
+    static final class Entry {
+        private final String className;
+        private final Kind kind;
+        private final String name;
+        private final JApiChangeStatus changeStatus;
+        private final Verdict verdict;
+
+        private Entry(String className, Kind kind, String name, JApiChangeStatus changeStatus, Verdict verdict) {
+            this.className = className;
+            this.kind = kind;
+            this.name = name;
+            this.changeStatus = changeStatus;
+            this.verdict = verdict;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The name of the element. Methods and constructors include their parameter types.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public JApiChangeStatus getChangeStatus() {
+            return changeStatus;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+    }
+
+    static final class Builder {
         private final ImmutableList.Builder<JApiClass> changedClasses = ImmutableList.builder();
-        private boolean accepted = false;
-        private boolean ignored = false;
+        private final Set<String> acceptedClasses = Sets.newHashSet();
+        private final Set<String> ignoredClasses = Sets.newHashSet();
+        private final ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+        /**
+         * Entries of the members of the class being added.
+         */
+        private final List<Entry> members = Lists.newArrayList();
+        /**
+         * Number of changed classes added.
+         */
+        private int changed;
+        /**
+         * Name of the class being added.
+         */
+        private String current;
 
-        Builder() {
+        private Builder() {
+        }
+
+        /**
+         * Adds a collection of classes.
+         */
+        Builder addAll(Iterable<JApiClass> classes) {
+            if (classes != null) {
+                for (JApiClass c : classes) {
+                    add(c);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Records a class with accepted changes, without analyzing it.
+         */
+        Builder accepted(String className) {
+            acceptedClasses.add(className);
+            return this;
+        }
+
+        /**
+         * Records a class with ignored changes, without analyzing it.
+         */
+        Builder ignored(String className) {
+            ignoredClasses.add(className);
+            return this;
+        }
+
+        /**
+         * @return Whether any class with binary incompatible changes that are neither accepted nor ignored has
+         * been added.
+         */
+        boolean hasChangedClasses() {
+            return changed > 0;
+        }
+
+        BinaryChanges build() {
+            return new BinaryChanges(this);
         }
 
         /**
          * Adds a class to the list. Checks if the class must be filtered out.
+         * Each member list is compacted in a single pass, keeping only the binary incompatible members.
          */
         void add(JApiClass klass) {
             // In this version we only keep binary incompatible changes
             // TODO In the future we must dive into binary compatible changes to look for unneeded annotations.
-            final Element<JApiClass> classElement = element(klass);
-            if (classElement != null) {
+            current = klass.getFullyQualifiedName();
+            Verdict verdict = judge(klass);
+            if (verdict == Verdict.FAILED) {
                 // TODO: some incompatibilities are being filtered here.
-                final boolean interfaces = filter(klass.getInterfaces());
-                final boolean fields = filterElements(klass.getFields());
-                final boolean constructors = filterElements(klass.getConstructors());
-                final boolean methods = filterElements(klass.getMethods());
-                final boolean annotations = filter(klass.getAnnotations());
+                final boolean interfaces = retainIncompatible(klass.getInterfaces());
+                final boolean fields = retainIncompatibleElements(klass.getFields());
+                final boolean constructors = retainIncompatibleElements(klass.getConstructors());
+                final boolean methods = retainIncompatibleElements(klass.getMethods());
+                final boolean annotations = retainIncompatible(klass.getAnnotations());
                 if (interfaces || fields || constructors || methods || annotations) {
                     changedClasses.add(klass);
+                    changed++;
+                } else {
+                    verdict = Verdict.PASSED;
                 }
             }
+            if (verdict == Verdict.ACCEPTED || verdict == Verdict.IGNORED) {
+                // Members are not filtered, as the class is not reported, but they are recorded for the reports
+                recordMembers(klass, verdict);
+            }
+            if (verdict != null) {
+                entries.add(new Entry(current, Kind.CLASS, current, klass.getChangeStatus(), verdict));
+                entries.addAll(members);
+            }
+            members.clear();
         }
 
-        private <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> Element<T> element(T element) {
+        /**
+         * Judges an element, recording the classes with accepted and ignored changes.
+         *
+         * @return The verdict or {@code null} if the element is binary compatible.
+         */
+        private <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> Verdict judge(T element) {
             // TODO: check for unneeded annotations.
-            if (element != null && !element.isBinaryCompatible()) {
-                final Element<T> e = Element.of(element);
-                // TODO: adding NoExternalUse to a formerly public element should be marked as incompatible.
-                if (e != null && !e.isNoExternalUse()) {
-                    accepted |= e.isAccepted();
-                    ignored |= e.isIgnored();
-                    if (!e.isAccepted() && !e.isIgnored()) {
-                        return e;
-                    }
+            if (element == null || element.isBinaryCompatible()) {
+                return null;
+            }
+            final int flags = Element.getFlags(element);
+            // TODO: adding NoExternalUse to a formerly public element should be marked as incompatible.
+            if ((flags & Element.NO_EXTERNAL_USE) != 0) {
+                return Verdict.NO_EXTERNAL_USE;
+            }
+            if ((flags & Element.ACCEPTED) != 0) {
+                acceptedClasses.add(current);
+            }
+            if ((flags & Element.IGNORED) != 0) {
+                ignoredClasses.add(current);
+            }
+            return getVerdict(flags);
+        }
+
+        /**
+         * Judges an element without recording anything.
+         *
+         * @return The verdict or {@code null} if the element is binary compatible.
+         */
+        private static <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> Verdict peek(T element) {
+            if (element == null || element.isBinaryCompatible()) {
+                return null;
+            }
+            final int flags = Element.getFlags(element);
+            if ((flags & Element.NO_EXTERNAL_USE) != 0) {
+                return Verdict.NO_EXTERNAL_USE;
+            }
+            return getVerdict(flags);
+        }
+
+        private static Verdict getVerdict(int flags) {
+            if ((flags & Element.ACCEPTED) != 0) {
+                return Verdict.ACCEPTED;
+            }
+            return (flags & Element.IGNORED) != 0 ? Verdict.IGNORED : Verdict.FAILED;
+        }
+
+        /**
+         * Checks whether a member has binary incompatible changes that are not accepted or ignored, recording its
+         * entry.
+         */
+        private <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> boolean isIncompatible(T member) {
+            final Verdict verdict = judge(member);
+            if (verdict == null) {
+                return false;
+            }
+            record(member, verdict);
+            return verdict == Verdict.FAILED;
+        }
+
+        /**
+         * Records the entries of the binary incompatible members of a class whose changes are accepted or ignored as
+         * a whole. Members without a verdict of their own get the one of the class. The accepted and ignored classes
+         * only depend on the class verdict, as they did before the members were recorded.
+         */
+        private void recordMembers(JApiClass klass, Verdict classVerdict) {
+            for (JApiImplementedInterface i : klass.getInterfaces()) {
+                if (i != null && !i.isBinaryCompatible()) {
+                    record(i, classVerdict);
+                }
+            }
+            recordElements(klass.getFields(), classVerdict);
+            recordElements(klass.getConstructors(), classVerdict);
+            recordElements(klass.getMethods(), classVerdict);
+            for (JApiAnnotation a : klass.getAnnotations()) {
+                if (a != null && !a.isBinaryCompatible()) {
+                    record(a, classVerdict);
+                }
+            }
+        }
+
+        private <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> void recordElements(List<T> list, Verdict classVerdict) {
+            for (T t : list) {
+                final Verdict verdict = peek(t);
+                if (verdict != null) {
+                    record(t, verdict == Verdict.FAILED ? classVerdict : verdict);
                 }
             }
-            return null;
         }
 
-        private <T extends JApiBinaryCompatibility> boolean filter(List<T> list) {
-            for (Iterator<T> i = list.iterator(); i.hasNext(); ) {
-                final T t = i.next();
-                if (t == null || t.isBinaryCompatible()) {
-                    i.remove();
+        /**
+         * Records the entry of a binary incompatible member of the class being added.
+         */
+        private void record(Object member, Verdict verdict) {
+            if (member instanceof JApiField) {
+                final JApiField f = (JApiField) member;
+                members.add(new Entry(current, Kind.FIELD, f.getName(), f.getChangeStatus(), verdict));
+            } else if (member instanceof JApiBehavior) {
+                final JApiBehavior behavior = (JApiBehavior) member;
+                final Kind kind = behavior instanceof JApiConstructor ? Kind.CONSTRUCTOR : Kind.METHOD;
+                members.add(new Entry(current, kind, getSignature(behavior), behavior.getChangeStatus(), verdict));
+            } else if (member instanceof JApiImplementedInterface) {
+                final JApiImplementedInterface i = (JApiImplementedInterface) member;
+                members.add(new Entry(current, Kind.INTERFACE, i.getFullyQualifiedName(), i.getChangeStatus(), verdict));
+            } else if (member instanceof JApiAnnotation) {
+                final JApiAnnotation a = (JApiAnnotation) member;
+                members.add(new Entry(current, Kind.ANNOTATION, a.getFullyQualifiedName(), a.getChangeStatus(), verdict));
+            }
+        }
+
+        private static String getSignature(JApiBehavior behavior) {
+            final StringBuilder b = new StringBuilder(behavior.getName()).append('(');
+            boolean first = true;
+            for (JApiParameter p : behavior.getParameters()) {
+                if (!first) {
+                    b.append(',');
                 }
+                b.append(p.getType());
+                first = false;
             }
-            return !list.isEmpty();
+            return b.append(')').toString();
         }
 
-        private <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> boolean filterElements(List<T> list) {
-            for (Iterator<T> i = list.iterator(); i.hasNext(); ) {
-                final T t = i.next();
-                final Element<T> e = element(t);
-                if (e == null) {
-                    i.remove();
+        /**
+         * Keeps only the binary incompatible entries of a list.
+         *
+         * @return Whether any entry was kept.
+         */
+        private <T extends JApiBinaryCompatibility> boolean retainIncompatible(List<T> list) {
+            if (!(list instanceof RandomAccess)) {
+                for (Iterator<T> i = list.iterator(); i.hasNext(); ) {
+                    final T t = i.next();
+                    if (t == null || t.isBinaryCompatible()) {
+                        i.remove();
+                    } else {
+                        record(t, Verdict.FAILED);
+                    }
                 }
+                return !list.isEmpty();
+            }
+            final int n = list.size();
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                final T t = list.get(i);
+                if (t != null && !t.isBinaryCompatible()) {
+                    record(t, Verdict.FAILED);
+                    list.set(kept++, t);
+                }
+            }
+            truncate(list, kept);
+            return kept > 0;
+        }
+
+        /**
+         * Keeps only the members of a list with binary incompatible changes that are not accepted or ignored.
+         *
+         * @return Whether any member was kept.
+         */
+        private <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> boolean retainIncompatibleElements(List<T> list) {
+            if (!(list instanceof RandomAccess)) {
+                for (Iterator<T> i = list.iterator(); i.hasNext(); ) {
+                    if (!isIncompatible(i.next())) {
+                        i.remove();
+                    }
+                }
+                return !list.isEmpty();
+            }
+            final int n = list.size();
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                final T t = list.get(i);
+                if (isIncompatible(t)) {
+                    list.set(kept++, t);
+                }
+            }
+            truncate(list, kept);
+            return kept > 0;
+        }
+
+        /**
+         * Removes the tail of a compacted list, in a single operation.
+         */
+        private static void truncate(List<?> list, int size) {
+            if (size < list.size()) {
+                list.subList(size, list.size()).clear();
             }
-            return !list.isEmpty();
         }
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Store of cache entries shared between machines (e.g., CI agents), such as baseline snapshots and check verdicts.
+ * Entries are files identified by a relative path, and they are immutable: an entry is never modified once
+ * written, so readers never need to revalidate it. Besides the built-in directory and HTTP stores, other stores can
+ * be provided by {@link Factory} implementations registered with {@link java.util.ServiceLoader} in a dependency of
+ * the plugin.
+ *
+ * @author Andres Rodriguez
+ */
+public interface CacheStore {
+    /**
+     * Copies an entry to a local file.
+     *
+     * @param key    Entry key.
+     * @param target File to write. It must be written atomically.
+     * @return Whether the entry exists.
+     */
+    boolean get(String key, File target) throws IOException;
+
+    /**
+     * Writes an entry.
+     *
+     * @param key    Entry key.
+     * @param source File with the entry contents.
+     */
+    void put(String key, File source) throws IOException;
+
+    /**
+     * Factory of stores, registered in {@code META-INF/services/org.jenkinsci.tools.bce.CacheStore$Factory}.
+     */
+    interface Factory {
+        /**
+         * Creates a store from its specification, as configured in the {@code remoteCache} parameter.
+         *
+         * @param spec Store specification.
+         * @return The requested store or {@code null} if the specification is not supported by this factory.
+         */
+        @Nullable
+        CacheStore create(String spec);
+    }
+}
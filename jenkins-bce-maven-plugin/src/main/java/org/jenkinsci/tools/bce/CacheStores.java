@@ -0,0 +1,217 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ServiceLoader;
+
+/**
+ * Built-in {@link CacheStore} implementations and lookup of the registered ones.
+ *
+ * @author Andres Rodriguez
+ */
+final class CacheStores {
+    /**
+     * File system store specification.
+     */
+    static final String FILE = "file:";
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    /**
+     * Not instantiable.
+     */
+    private CacheStores() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Creates a store from its specification: {@code file:<i>path</i>} for a directory (e.g., a shared network
+     * directory), an {@code http://} or {@code https://} URL for a server reading entries with {@code GET} and
+     * writing them with {@code PUT}, or any specification supported by a registered {@link CacheStore.Factory}.
+     *
+     * @param spec   Store specification.
+     * @param client HTTP client to use.
+     * @return The requested store or {@code null} if the specification is not valid.
+     */
+    static CacheStore of(@Nullable String spec, OkHttpClient client) {
+        if (spec == null) {
+            return null;
+        }
+        spec = spec.trim();
+        if (spec.startsWith(FILE) && spec.length() > FILE.length()) {
+            return new FileStore(new File(spec.substring(FILE.length())));
+        }
+        if (spec.startsWith("http://") || spec.startsWith("https://")) {
+            return new HttpStore(client, spec.endsWith("/") ? spec : spec + "/");
+        }
+        // Factories are looked up in the plugin realm, which includes the plugin dependencies
+        for (CacheStore.Factory factory : ServiceLoader.load(CacheStore.Factory.class, CacheStores.class.getClassLoader())) {
+            final CacheStore store = factory.create(spec);
+            if (store != null) {
+                return store;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a stream to a file atomically, through a temporary file in the same directory.
+     */
+    static void write(InputStream is, File target) throws IOException {
+        write(is, target, true);
+    }
+
+    /**
+     * Writes a stream to a file atomically, through a temporary file in the same directory.
+     *
+     * @param replace Whether to replace an existing file. If not, an existing file is left alone, as it is the
+     *                same entry written by a concurrent build.
+     */
+    private static void write(InputStream is, File target, boolean replace) throws IOException {
+        final File parent = target.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        final File tmp = File.createTempFile("cache", ".tmp", parent);
+        try {
+            Files.copy(is, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (replace) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                try {
+                    Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Written concurrently
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Store in a directory, which may be shared.
+     */
+    private static final class FileStore implements CacheStore {
+        private final File directory;
+
+        FileStore(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean get(String key, File target) throws IOException {
+            final File file = new File(directory, key);
+            if (!file.isFile()) {
+                return false;
+            }
+            try (InputStream is = Files.newInputStream(file.toPath())) {
+                write(is, target);
+            }
+            return true;
+        }
+
+        /**
+         * Entries never change once written, so an existing one is kept, including one written concurrently.
+         */
+        @Override
+        public void put(String key, File source) throws IOException {
+            final File target = new File(directory, key);
+            if (target.isFile()) {
+                return;
+            }
+            try (InputStream is = Files.newInputStream(source.toPath())) {
+                write(is, target, false);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return FILE + directory;
+        }
+    }
+
+    /**
+     * Store in an HTTP server.
+     */
+    private static final class HttpStore implements CacheStore {
+        private final OkHttpClient client;
+        /**
+         * Base URL, ending in a slash.
+         */
+        private final String url;
+
+        HttpStore(OkHttpClient client, String url) {
+            this.client = client;
+            this.url = url;
+        }
+
+        @Override
+        public boolean get(String key, File target) throws IOException {
+            final Response response = client.newCall(new Request.Builder().url(url + key).build()).execute();
+            try {
+                if (response.code() == 404) {
+                    return false;
+                }
+                if (!response.isSuccessful()) {
+                    throw new IOException(String.format("Unexpected response %d fetching [%s]", response.code(), url + key));
+                }
+                try (InputStream is = response.body().byteStream()) {
+                    write(is, target);
+                }
+                return true;
+            } finally {
+                response.body().close();
+            }
+        }
+
+        @Override
+        public void put(String key, File source) throws IOException {
+            final Request request = new Request.Builder().url(url + key).put(RequestBody.create(OCTET_STREAM, source)).build();
+            final Response response = client.newCall(request).execute();
+            try {
+                if (!response.isSuccessful()) {
+                    throw new IOException(String.format("Unexpected response %d storing [%s]", response.code(), url + key));
+                }
+            } finally {
+                response.body().close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+}
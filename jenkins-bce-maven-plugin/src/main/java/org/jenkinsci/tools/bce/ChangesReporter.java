@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import japicmp.config.Options;
+import japicmp.model.JApiClass;
+import japicmp.output.stdout.StdoutOutputGenerator;
+import org.apache.maven.plugin.logging.Log;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Reporter writing binary incompatible changes to the log as they are rendered, one class at a time, so that the
+ * whole report is never held in memory. Classes are rendered in the japicmp standard output format. Every logged
+ * line can also be written to a transcript, to replay the report later.
+ *
+ * @author Andres Rodriguez
+ */
+final class ChangesReporter {
+    private static final Splitter LINES = Splitter.on('\n');
+    /**
+     * Text written by the generator when there are no classes.
+     */
+    private static final String NO_CHANGES = "No changes.";
+
+    /**
+     * Comparison options.
+     */
+    private final Options options;
+    /**
+     * Log to write to.
+     */
+    private final Log log;
+    /**
+     * Maximum number of classes to report in detail. If zero or negative, every class is reported.
+     */
+    private final int limit;
+    /**
+     * Transcript of the logged lines, if any.
+     */
+    private final Writer transcript;
+
+    /**
+     * Constructor.
+     *
+     * @param options    Comparison options.
+     * @param log        Log to write to.
+     * @param limit      Maximum number of classes to report in detail. If zero or negative, every class is reported.
+     * @param transcript Writer to copy the logged lines to, if any.
+     */
+    ChangesReporter(Options options, Log log, int limit, @Nullable Writer transcript) {
+        this.options = options;
+        this.log = log;
+        this.limit = limit;
+        this.transcript = transcript;
+    }
+
+    /**
+     * Reports the changed classes.
+     */
+    void report(List<JApiClass> classes) throws IOException {
+        error(String.format("Binary Incompatible Changes Detected in %d classes", classes.size()));
+        // The header is the same for every class, so it is written only once
+        final String header = stripNoChanges(render(ImmutableList.<JApiClass>of()));
+        write(header);
+        final int n = limit > 0 ? Math.min(limit, classes.size()) : classes.size();
+        for (int i = 0; i < n; i++) {
+            final String section = render(ImmutableList.of(classes.get(i)));
+            write(section.startsWith(header) ? section.substring(header.length()) : section);
+        }
+        if (n < classes.size()) {
+            error(String.format("... and %d more classes with binary incompatible changes (report limited to %d classes)",
+                    classes.size() - n, limit));
+        }
+    }
+
+    private String render(List<JApiClass> classes) {
+        // The generator may modify the list, so give it its own copy
+        return new StdoutOutputGenerator(options, Lists.newLinkedList(classes)).generate();
+    }
+
+    private static String stripNoChanges(String empty) {
+        final int i = empty.lastIndexOf(NO_CHANGES);
+        return i < 0 ? empty : empty.substring(0, i);
+    }
+
+    private void write(String text) throws IOException {
+        for (String line : LINES.split(text)) {
+            if (!line.isEmpty()) {
+                error(line);
+            }
+        }
+    }
+
+    private void error(String line) throws IOException {
+        log.error(line);
+        if (transcript != null) {
+            transcript.write(line);
+            transcript.write('\n');
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.Deflater;
+
+/**
+ * Utility methods to work with the classes contained in a set of archives.
+ *
+ * @author Andres Rodriguez
+ */
+final class ClassArchives {
+    private static final String CLASS = ".class";
+    /**
+     * Time of the entries of the archives written from a directory (2000-01-01T00:00:00Z).
+     */
+    private static final long ENTRY_TIME = 946684800000L;
+
+    /**
+     * Not instantiable.
+     */
+    private ClassArchives() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return The class name for a jar entry or {@code null} if the entry is not a class file.
+     */
+    static String getClassName(JarEntry entry) {
+        final String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(CLASS)) {
+            return null;
+        }
+        return name.substring(0, name.length() - CLASS.length()).replace('/', '.');
+    }
+
+    /**
+     * @return The jar entry name for a class.
+     */
+    static String getEntryName(String className) {
+        return className.replace('.', '/') + CLASS;
+    }
+
+    /**
+     * Lists the classes in a set of archives, without reading them.
+     *
+     * @param archives Archives to list.
+     * @return The class names.
+     */
+    static Set<String> getClassNames(Iterable<File> archives) throws IOException {
+        final Set<String> names = Sets.newHashSet();
+        for (File archive : archives) {
+            try (JarFile jar = new JarFile(archive)) {
+                for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                    final String name = getClassName(e.nextElement());
+                    if (name != null) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Reads the metadata of every class in a set of archives. If a class is present in several archives, the first
+     * one wins, as it would in a class path. The metadata of each archive is taken from the {@link ClassInfoCache}.
+     *
+     * @param archives Archives to read.
+     * @return The class metadata, indexed by class name.
+     */
+    static Map<String, ClassInfo> index(Iterable<File> archives) throws IOException {
+        final Map<String, ClassInfo> classes = Maps.newHashMap();
+        for (File archive : archives) {
+            for (Map.Entry<String, ClassInfo> entry : ClassInfoCache.get(archive).entrySet()) {
+                if (!classes.containsKey(entry.getKey())) {
+                    classes.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Reads the metadata of every class in an archive.
+     *
+     * @param archive Archive to read.
+     * @return The class metadata, indexed by class name.
+     */
+    static ImmutableMap<String, ClassInfo> read(File archive) throws IOException {
+        final Map<String, ClassInfo> classes = Maps.newHashMap();
+        try (JarFile jar = new JarFile(archive)) {
+            for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                final JarEntry entry = e.nextElement();
+                final String name = getClassName(entry);
+                if (name != null && !classes.containsKey(name)) {
+                    try (InputStream is = jar.getInputStream(entry)) {
+                        final ClassInfo info = ClassInfo.of(ByteStreams.toByteArray(is));
+                        classes.put(info.getName(), info);
+                    }
+                }
+            }
+        }
+        return ImmutableMap.copyOf(classes);
+    }
+
+    /**
+     * Computes the classes that extend or implement, directly or indirectly, any of the provided ones, including
+     * the provided ones themselves.
+     *
+     * @param classes Class metadata, indexed by class name.
+     * @param roots   Classes to start from.
+     * @return The set of affected classes.
+     */
+    static Set<String> getSubtypeClosure(Map<String, ClassInfo> classes, Set<String> roots) {
+        final Map<String, List<String>> subtypes = Maps.newHashMap();
+        for (ClassInfo info : classes.values()) {
+            addSubtype(subtypes, info.getSuperclass(), info.getName());
+            for (String i : info.getInterfaces()) {
+                addSubtype(subtypes, i, info.getName());
+            }
+        }
+        final Set<String> closure = Sets.newHashSet(roots);
+        final List<String> pending = Lists.newArrayList(roots);
+        while (!pending.isEmpty()) {
+            final List<String> children = subtypes.get(pending.remove(pending.size() - 1));
+            if (children != null) {
+                for (String child : children) {
+                    if (closure.add(child)) {
+                        pending.add(child);
+                    }
+                }
+            }
+        }
+        return closure;
+    }
+
+    private static void addSubtype(Map<String, List<String>> subtypes, String supertype, String subtype) {
+        if (supertype == null) {
+            return;
+        }
+        List<String> list = subtypes.get(supertype);
+        if (list == null) {
+            list = Lists.newArrayList();
+            subtypes.put(supertype, list);
+        }
+        list.add(subtype);
+    }
+
+    /**
+     * Writes an archive with the class files of a directory, without compressing them, as it is only read once.
+     * The archive only depends on the class files: entries are sorted by name and have a fixed time, so that
+     * recompiling the same classes produces the same archive.
+     *
+     * @param directory Directory to archive.
+     * @param target    Archive to write.
+     * @return The number of classes written.
+     */
+    static int archive(File directory, File target) throws IOException {
+        final File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        final Path root = directory.toPath();
+        final Map<String, Path> files = Maps.newTreeMap();
+        java.nio.file.Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                if (attrs.isRegularFile() && name.endsWith(CLASS)) {
+                    files.put(name, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        try (JarOutputStream os = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(target)))) {
+            os.setLevel(Deflater.NO_COMPRESSION);
+            // The manifest makes sure the archive is valid even if empty
+            final JarEntry manifest = new JarEntry(JarFile.MANIFEST_NAME);
+            manifest.setTime(ENTRY_TIME);
+            os.putNextEntry(manifest);
+            new Manifest().write(os);
+            os.closeEntry();
+            for (Map.Entry<String, Path> file : files.entrySet()) {
+                final JarEntry entry = new JarEntry(file.getKey());
+                entry.setTime(ENTRY_TIME);
+                os.putNextEntry(entry);
+                java.nio.file.Files.copy(file.getValue(), os);
+                os.closeEntry();
+            }
+        }
+        return files.size();
+    }
+
+    /**
+     * Writes an archive containing only some of the classes of a set of archives, without compressing them, as it
+     * is only read once.
+     *
+     * @param archives Source archives.
+     * @param classes  Classes to include.
+     * @param target   Archive to write.
+     * @return The number of classes written.
+     */
+    static int extract(Iterable<File> archives, Set<String> classes, File target) throws IOException {
+        final File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        final Set<String> written = Sets.newHashSet();
+        // The manifest makes sure the archive is valid even if empty
+        try (JarOutputStream os = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(target)), new Manifest())) {
+            os.setLevel(Deflater.NO_COMPRESSION);
+            for (File archive : archives) {
+                try (JarFile jar = new JarFile(archive)) {
+                    for (String name : classes) {
+                        if (written.contains(name)) {
+                            continue;
+                        }
+                        final JarEntry entry = jar.getJarEntry(getEntryName(name));
+                        if (entry != null) {
+                            os.putNextEntry(new JarEntry(entry.getName()));
+                            try (InputStream is = jar.getInputStream(entry)) {
+                                ByteStreams.copy(is, os);
+                            }
+                            os.closeEntry();
+                            written.add(name);
+                        }
+                    }
+                }
+            }
+        }
+        return written.size();
+    }
+}
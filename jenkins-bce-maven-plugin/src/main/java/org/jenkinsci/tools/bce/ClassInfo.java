@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.AnnotationDefaultAttribute;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.AttributeInfo;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ExceptionsAttribute;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.ParameterAnnotationsAttribute;
+import javassist.bytecode.SignatureAttribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Object representing the metadata of a class file needed to track changes: its bytecode digest, the digest
+ * of its API signature and its direct supertypes.
+ *
+ * @author Andres Rodriguez
+ */
+final class ClassInfo {
+    /**
+     * Fully qualified class name.
+     */
+    private final String name;
+    /**
+     * Bytecode digest.
+     */
+    private final String digest;
+    /**
+     * API signature digest.
+     */
+    private final String apiDigest;
+    /**
+     * Superclass name, if any.
+     */
+    private final String superclass;
+    /**
+     * Implemented interfaces.
+     */
+    private final ImmutableList<String> interfaces;
+
+    /**
+     * Parses a class file.
+     *
+     * @param bytes Class file contents.
+     */
+    static ClassInfo of(byte[] bytes) throws IOException {
+        final ClassFile cf = new ClassFile(new DataInputStream(new ByteArrayInputStream(bytes)));
+        return new ClassInfo(cf.getName(), Hashing.sha1().hashBytes(bytes).toString(), getApiDigest(cf),
+                cf.getSuperclass(), ImmutableList.copyOf(cf.getInterfaces()));
+    }
+
+    /**
+     * Computes the digest of the API signature of a class: its modifiers, supertypes and annotations plus the
+     * signatures, modifiers and annotations of its public and protected members. Two classes with the same API
+     * digest are binary compatible with each other, as long as their supertypes are. Classes that are not public are
+     * digested too, as their public and protected members are inherited by their public subclasses.
+     */
+    private static String getApiDigest(ClassFile cf) {
+        final List<String> members = Lists.newArrayList();
+        for (Object o : cf.getFields()) {
+            final FieldInfo f = (FieldInfo) o;
+            if (isApi(f.getAccessFlags())) {
+                members.add(member("F", f.getAccessFlags(), f.getName(), f.getDescriptor(), f.getAttributes()));
+            }
+        }
+        for (Object o : cf.getMethods()) {
+            final MethodInfo m = (MethodInfo) o;
+            if (isApi(m.getAccessFlags())) {
+                members.add(member("M", m.getAccessFlags(), m.getName(), m.getDescriptor(), m.getAttributes()));
+            }
+        }
+        // Member order is not relevant for compatibility
+        Collections.sort(members);
+        final StringBuilder b = new StringBuilder();
+        b.append(cf.getAccessFlags()).append(' ').append(cf.getName()).append(' ').append(cf.getSuperclass());
+        b.append(' ').append(Arrays.toString(cf.getInterfaces()));
+        appendAttributes(b, cf.getAttributes());
+        for (String m : members) {
+            b.append('\n').append(m);
+        }
+        return Hashing.sha1().hashString(b, Charsets.UTF_8).toString();
+    }
+
+    private static boolean isApi(int accessFlags) {
+        return AccessFlag.isPublic(accessFlags) || AccessFlag.isProtected(accessFlags);
+    }
+
+    private static String member(String kind, int accessFlags, String name, String descriptor, List<?> attributes) {
+        final StringBuilder b = new StringBuilder(kind).append(' ').append(accessFlags).append(' ').append(name).append(' ').append(descriptor);
+        appendAttributes(b, attributes);
+        return b.toString();
+    }
+
+    /**
+     * Appends the attributes that are part of the API signature.
+     */
+    private static void appendAttributes(StringBuilder b, List<?> attributes) {
+        for (Object o : attributes) {
+            if (o instanceof SignatureAttribute) {
+                b.append(" S:").append(((SignatureAttribute) o).getSignature());
+            } else if (o instanceof ExceptionsAttribute) {
+                final String[] exceptions = ((ExceptionsAttribute) o).getExceptions();
+                if (exceptions != null) {
+                    Arrays.sort(exceptions);
+                    b.append(" E:").append(Arrays.toString(exceptions));
+                }
+            } else if (o instanceof AnnotationsAttribute || o instanceof ParameterAnnotationsAttribute || o instanceof AnnotationDefaultAttribute) {
+                final AttributeInfo a = (AttributeInfo) o;
+                b.append(' ').append(a.getName()).append(':').append(a);
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    private ClassInfo(String name, String digest, String apiDigest, String superclass, ImmutableList<String> interfaces) {
+        this.name = name;
+        this.digest = digest;
+        this.apiDigest = apiDigest;
+        this.superclass = superclass;
+        this.interfaces = interfaces;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public String getApiDigest() {
+        return apiDigest;
+    }
+
+    public String getSuperclass() {
+        return superclass;
+    }
+
+    public ImmutableList<String> getInterfaces() {
+        return interfaces;
+    }
+}
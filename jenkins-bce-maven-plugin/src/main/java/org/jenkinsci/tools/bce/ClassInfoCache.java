@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Content addressed cache of the class metadata of archives, shared by every comparison in the JVM. Archives are
+ * identified by the SHA-1 digest of their contents, so an archive present in both the old and the new class paths
+ * (e.g., a dependency that did not change) or used by several modules is read only once. Values are softly
+ * referenced, so they are released if memory runs low, and the digests of archive files are bounded. It is safe to
+ * use from concurrent builds.
+ *
+ * @author Andres Rodriguez
+ */
+final class ClassInfoCache {
+    /**
+     * Maximum number of archive digests kept. Rebuilt archives get new keys, so the oldest ones are evicted in
+     * long-lived JVMs.
+     */
+    private static final int MAX_DIGESTS = 1024;
+    /**
+     * Archive digests, indexed by path, size and modification time, so that unchanged files are not hashed again.
+     */
+    private static final Memoizer<String, String> DIGESTS = new Memoizer<String, String>(
+            CacheBuilder.newBuilder().maximumSize(MAX_DIGESTS).<String, Future<String>>build().asMap());
+    /**
+     * Class metadata of each archive, indexed by archive digest.
+     */
+    private static final Memoizer<String, ImmutableMap<String, ClassInfo>> ARCHIVES = new Memoizer<String, ImmutableMap<String, ClassInfo>>(
+            CacheBuilder.newBuilder().softValues().<String, Future<ImmutableMap<String, ClassInfo>>>build().asMap());
+
+    /**
+     * Not instantiable.
+     */
+    private ClassInfoCache() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the metadata of the classes in an archive, reading it only if an archive with the same contents has
+     * not been read before. If several threads ask for the same archive, only one of them reads it.
+     *
+     * @param archive Archive to read.
+     * @return The class metadata, indexed by class name.
+     */
+    static ImmutableMap<String, ClassInfo> get(final File archive) throws IOException {
+        return ARCHIVES.get(getDigest(archive), new Callable<ImmutableMap<String, ClassInfo>>() {
+            @Override
+            public ImmutableMap<String, ClassInfo> call() throws IOException {
+                return ClassArchives.read(archive);
+            }
+        });
+    }
+
+    /**
+     * @return The SHA-1 digest of the contents of an archive.
+     */
+    static String getDigest(final File archive) throws IOException {
+        final String key = archive.getAbsolutePath() + ':' + archive.length() + ':' + archive.lastModified();
+        return DIGESTS.get(key, new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                final Hasher hasher = Hashing.sha1().newHasher();
+                final byte[] buffer = new byte[8192];
+                try (InputStream is = new FileInputStream(archive)) {
+                    for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+                        hasher.putBytes(buffer, 0, n);
+                    }
+                }
+                return hasher.hash().toString();
+            }
+        });
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import japicmp.cmp.JarArchiveComparator;
+import japicmp.cmp.JarArchiveComparatorOptions;
+import japicmp.config.Options;
+import japicmp.model.JApiClass;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Engine comparing the old and new archives of a check. Every engine produces the japicmp model consumed by
+ * {@link BinaryChanges}, but they differ in how much of the archives they load to do it.
+ *
+ * @author Andres Rodriguez
+ */
+abstract class ComparisonEngine {
+    /**
+     * Engine loading every class in japicmp.
+     */
+    static final String JAPICMP = "japicmp";
+    /**
+     * Engine comparing class file signatures first and loading in japicmp only the classes whose API changed.
+     */
+    static final String SIGNATURE = "signature";
+    /**
+     * Minimum number of classes compared by a parallel task.
+     */
+    private static final int MIN_PARTITION_SIZE = 100;
+    /**
+     * Growth factor of the batches compared in fail-fast mode.
+     */
+    private static final int FAIL_FAST_GROWTH = 4;
+    /**
+     * Orders the results by class name.
+     */
+    private static final Ordering<JApiClass> BY_NAME = new Ordering<JApiClass>() {
+        @Override
+        public int compare(JApiClass left, JApiClass right) {
+            return left.getFullyQualifiedName().compareTo(right.getFullyQualifiedName());
+        }
+    };
+
+    /**
+     * Directory for temporary archives.
+     */
+    private final File workDirectory;
+    /**
+     * Number of threads used to compare.
+     */
+    private final int parallelism;
+
+    /**
+     * Returns an engine by name.
+     *
+     * @param name          Engine name.
+     * @param workDirectory Directory for temporary archives.
+     * @param parallelism   Number of threads used to compare. If greater than one, classes are compared by package
+     *                      in a fork/join pool.
+     * @return The requested engine or {@code null} if the name is unknown.
+     */
+    static ComparisonEngine of(String name, File workDirectory, int parallelism) {
+        if (name == null || JAPICMP.equals(name)) {
+            return new Japicmp(workDirectory, parallelism);
+        } else if (SIGNATURE.equals(name)) {
+            return new Signature(workDirectory, parallelism);
+        }
+        return null;
+    }
+
+    /**
+     * Constructor.
+     */
+    ComparisonEngine(File workDirectory, int parallelism) {
+        this.workDirectory = workDirectory;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Compares the archives in the options.
+     *
+     * @param options Comparison options.
+     * @param classes Classes to compare. If {@code null} every class is compared.
+     * @return The comparison results.
+     */
+    abstract List<JApiClass> compare(Options options, @Nullable Set<String> classes) throws IOException;
+
+    /**
+     * Selects the classes that must be compared.
+     *
+     * @param options Comparison options.
+     * @param classes Candidate classes. If {@code null} every class is a candidate.
+     * @return The classes to compare.
+     */
+    abstract Set<String> select(Options options, @Nullable Set<String> classes) throws IOException;
+
+    /**
+     * Compares the classes in batches of whole packages, in class name order, filtering the results as they are
+     * produced. It stops after the first batch with changes that are neither accepted nor ignored. The first batch
+     * is small, so that an early failure is found quickly, and each batch is several times bigger than the previous
+     * one, so that a passing check only needs a few comparisons.
+     *
+     * @param options Comparison options.
+     * @param classes Classes to compare. If {@code null} every class is compared.
+     * @param builder Builder to add the results to.
+     * @return Whether the comparison stopped before comparing every class.
+     */
+    final boolean compareUntilFailure(Options options, @Nullable Set<String> classes, BinaryChanges.Builder builder) throws IOException {
+        final List<List<String>> packages = groupByPackage(select(options, classes));
+        int next = 0;
+        int batchSize = MIN_PARTITION_SIZE;
+        while (next < packages.size()) {
+            final Set<String> batch = Sets.newHashSet();
+            while (next < packages.size() && batch.size() < batchSize) {
+                batch.addAll(packages.get(next++));
+            }
+            builder.addAll(compareClasses(options, batch));
+            if (builder.hasChangedClasses()) {
+                return next < packages.size();
+            }
+            batchSize *= FAIL_FAST_GROWTH;
+        }
+        return false;
+    }
+
+    /**
+     * @return All the classes in the archives of the options.
+     */
+    static Set<String> getClassNames(Options options) throws IOException {
+        final Set<String> classes = ClassArchives.getClassNames(options.getOldArchives());
+        classes.addAll(ClassArchives.getClassNames(options.getNewArchives()));
+        return classes;
+    }
+
+    /**
+     * Groups classes by package, sorted by name.
+     */
+    private static List<List<String>> groupByPackage(Set<String> classes) {
+        final Map<String, List<String>> packages = Maps.newTreeMap();
+        for (String name : Ordering.natural().sortedCopy(classes)) {
+            final int i = name.lastIndexOf('.');
+            final String pkg = i < 0 ? "" : name.substring(0, i);
+            List<String> list = packages.get(pkg);
+            if (list == null) {
+                list = Lists.newArrayList();
+                packages.put(pkg, list);
+            }
+            list.add(name);
+        }
+        return ImmutableList.copyOf(packages.values());
+    }
+
+    /**
+     * Compares every class in the archives of the options.
+     */
+    final List<JApiClass> compareAll(Options options) throws IOException {
+        if (parallelism > 1) {
+            return compareClasses(options, getClassNames(options));
+        }
+        final JarArchiveComparator jarArchiveComparator = new JarArchiveComparator(JarArchiveComparatorOptions.of(options));
+        return jarArchiveComparator.compare(options.getOldArchives(), options.getNewArchives());
+    }
+
+    /**
+     * Compares a subset of the classes in the archives of the options, in parallel if enabled and worth it.
+     */
+    final List<JApiClass> compareClasses(Options options, Set<String> classes) throws IOException {
+        if (classes.isEmpty()) {
+            return ImmutableList.of();
+        }
+        if (parallelism <= 1 || classes.size() <= MIN_PARTITION_SIZE) {
+            return compareSubset(options, classes);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Each task gets whole packages, as classes in the same package usually reference each other
+            final List<JApiClass> result = pool.invoke(new PartitionTask(options, groupByPackage(classes)));
+            // Tasks complete in any order
+            return BY_NAME.sortedCopy(result);
+        } catch (RuntimeException e) {
+            for (Throwable t : Throwables.getCausalChain(e)) {
+                Throwables.propagateIfInstanceOf(t, IOException.class);
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compares a subset of the classes in the archives of the options. The classes are extracted to temporary
+     * archives and the archives in the options are used as class path, so that the compared classes can be fully
+     * resolved.
+     */
+    private List<JApiClass> compareSubset(Options options, Set<String> classes) throws IOException {
+        if (!workDirectory.isDirectory() && !workDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + workDirectory);
+        }
+        final File oldArchive = File.createTempFile("old-", ".jar", workDirectory);
+        try {
+            final File newArchive = File.createTempFile("new-", ".jar", workDirectory);
+            try {
+                ClassArchives.extract(options.getOldArchives(), classes, oldArchive);
+                ClassArchives.extract(options.getNewArchives(), classes, newArchive);
+                final JarArchiveComparatorOptions comparatorOptions = JarArchiveComparatorOptions.of(options);
+                comparatorOptions.setOldClassPath(getClassPath(options.getOldArchives(), options.getOldClassPath()));
+                comparatorOptions.setNewClassPath(getClassPath(options.getNewArchives(), options.getNewClassPath()));
+                final JarArchiveComparator jarArchiveComparator = new JarArchiveComparator(comparatorOptions);
+                return jarArchiveComparator.compare(oldArchive, newArchive);
+            } finally {
+                newArchive.delete();
+            }
+        } finally {
+            oldArchive.delete();
+        }
+    }
+
+    /**
+     * @return The archives followed by the class path entries of the options.
+     */
+    private static List<String> getClassPath(List<File> archives, Optional<String> classPath) {
+        final List<String> paths = Lists.newArrayListWithCapacity(archives.size());
+        for (File f : archives) {
+            paths.add(f.getAbsolutePath());
+        }
+        if (classPath.isPresent()) {
+            Iterables.addAll(paths, Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(classPath.get()));
+        }
+        return paths;
+    }
+
+    /**
+     * Task comparing a range of packages, splitting it in halves while it is big enough.
+     */
+    private final class PartitionTask extends RecursiveTask<List<JApiClass>> {
+        private final Options options;
+        /**
+         * Classes to compare, grouped by package.
+         */
+        private final List<List<String>> packages;
+
+        PartitionTask(Options options, List<List<String>> packages) {
+            this.options = options;
+            this.packages = packages;
+        }
+
+        @Override
+        protected List<JApiClass> compute() {
+            int size = 0;
+            for (List<String> p : packages) {
+                size += p.size();
+            }
+            if (packages.size() > 1 && size > MIN_PARTITION_SIZE) {
+                final int middle = packages.size() / 2;
+                final PartitionTask left = new PartitionTask(options, packages.subList(0, middle));
+                final PartitionTask right = new PartitionTask(options, packages.subList(middle, packages.size()));
+                left.fork();
+                final List<JApiClass> result = Lists.newArrayList(right.compute());
+                result.addAll(left.join());
+                return result;
+            }
+            try {
+                return compareSubset(options, Sets.newHashSet(Iterables.concat(packages)));
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    /**
+     * Engine loading every class to compare in japicmp.
+     */
+    private static final class Japicmp extends ComparisonEngine {
+        Japicmp(File workDirectory, int parallelism) {
+            super(workDirectory, parallelism);
+        }
+
+        @Override
+        List<JApiClass> compare(Options options, @Nullable Set<String> classes) throws IOException {
+            if (classes == null) {
+                return compareAll(options);
+            }
+            return compareClasses(options, classes);
+        }
+
+        @Override
+        Set<String> select(Options options, @Nullable Set<String> classes) throws IOException {
+            return classes == null ? getClassNames(options) : classes;
+        }
+    }
+
+    /**
+     * Engine streaming the class files of both versions and keeping only a digest of their API signature.
+     * Classes whose signature and supertypes did not change are binary compatible, so only the changed ones (and
+     * their subtypes) are loaded in japicmp to find out what changed.
+     */
+    private static final class Signature extends ComparisonEngine {
+        Signature(File workDirectory, int parallelism) {
+            super(workDirectory, parallelism);
+        }
+
+        @Override
+        List<JApiClass> compare(Options options, @Nullable Set<String> classes) throws IOException {
+            return compareClasses(options, select(options, classes));
+        }
+
+        @Override
+        Set<String> select(Options options, @Nullable Set<String> classes) throws IOException {
+            final Map<String, ClassInfo> oldClasses = ClassArchives.index(options.getOldArchives());
+            final Map<String, ClassInfo> newClasses = ClassArchives.index(options.getNewArchives());
+            final Set<String> changed = Sets.newHashSet();
+            for (ClassInfo info : newClasses.values()) {
+                final ClassInfo old = oldClasses.get(info.getName());
+                if (old == null || !Objects.equal(old.getApiDigest(), info.getApiDigest())) {
+                    changed.add(info.getName());
+                }
+            }
+            for (String name : oldClasses.keySet()) {
+                if (!newClasses.containsKey(name)) {
+                    changed.add(name);
+                }
+            }
+            // A class is affected by changes in its supertypes, in either version
+            final Set<String> affected = ClassArchives.getSubtypeClosure(oldClasses, changed);
+            affected.addAll(ClassArchives.getSubtypeClosure(newClasses, changed));
+            if (classes != null) {
+                affected.retainAll(classes);
+            }
+            return affected;
+        }
+    }
+}
@@ -29,6 +29,8 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.plugin.MojoFailureException;
 
 import javax.annotation.Nullable;
@@ -66,10 +68,6 @@ abstract class DependencyPolicy implements ArtifactFilter {
      */
     static final DependencyPolicy ALL = new All();
 
-    /**
-     * Splitter: fields.
-     */
-    private static final Splitter SPLIT_FIELDS = Splitter.on(',').omitEmptyStrings().trimResults();
     /**
      * Splitter: coordinates.
      */
@@ -78,35 +76,11 @@ abstract class DependencyPolicy implements ArtifactFilter {
     /**
      * Global exclusions.
      */
-    private static Predicate<Artifact> EXCLUSIONS = Predicates.or(
-            isArtifact("org.jenkins-ci.tools", "jenkins-bce-annotations"),
-            isArtifact("com.google.code.findbugs", "jsr305"),
-            isArtifact("com.google.code.findbugs", "annotations")
-    );
-
-    /**
-     * Creates an artifact predicate based on groupId.
-     */
-    private static Predicate<Artifact> isGroup(final String groupId) {
-        return new Predicate<Artifact>() {
-            @Override
-            public boolean apply(@Nullable Artifact artifact) {
-                return artifact != null && groupId.equals(artifact.getGroupId());
-            }
-        };
-    }
-
-    /**
-     * Creates an artifact predicate based on groupId and artifactId.
-     */
-    private static Predicate<Artifact> isArtifact(final String groupId, final String artifactId) {
-        return new Predicate<Artifact>() {
-            @Override
-            public boolean apply(@Nullable Artifact artifact) {
-                return artifact != null && groupId.equals(artifact.getGroupId()) && artifactId.equals(artifact.getArtifactId());
-            }
-        };
-    }
+    private static final ArtifactMatcher EXCLUSIONS = ArtifactMatcher.builder()
+            .artifact("org.jenkins-ci.tools", "jenkins-bce-annotations")
+            .artifact("com.google.code.findbugs", "jsr305")
+            .artifact("com.google.code.findbugs", "annotations")
+            .build();
 
     public static DependencyPolicy of(@Nullable String spec) throws MojoFailureException {
         if (spec == null) {
@@ -119,18 +93,18 @@ abstract class DependencyPolicy implements ArtifactFilter {
         if (spec.startsWith(POLICY_ALL)) {
             return ALL;
         }
-        List<Predicate<Artifact>> predicates = parse(POLICY_INCLUDE, spec);
-        if (predicates != null) {
-            return new Include(predicates);
+        ArtifactMatcher matcher = parse(POLICY_INCLUDE, spec);
+        if (matcher != null) {
+            return new Include(matcher);
         }
-        predicates = parse(POLICY_EXCLUDE, spec);
-        if (predicates != null) {
-            return new Exclude(predicates);
+        matcher = parse(POLICY_EXCLUDE, spec);
+        if (matcher != null) {
+            return new Exclude(matcher);
         }
         throw new MojoFailureException("Invalid dependency spec: " + spec);
     }
 
-    private static List<Predicate<Artifact>> parse(String prefix, String spec) throws MojoFailureException {
+    private static ArtifactMatcher parse(String prefix, String spec) throws MojoFailureException {
         if (!spec.startsWith(prefix)) {
             return null;
         }
@@ -138,22 +112,76 @@ abstract class DependencyPolicy implements ArtifactFilter {
         if (arg.isEmpty()) {
             throw new MojoFailureException("Invalid dependency spec: " + spec);
         }
-        final List<Predicate<Artifact>> predicates = Lists.newLinkedList();
-        for (String entry : SPLIT_FIELDS.split(arg)) {
+        final ArtifactMatcher.Builder builder = ArtifactMatcher.builder();
+        int entries = 0;
+        for (String entry : splitFields(arg)) {
             final List<String> coordinates = Lists.newArrayList(SPLIT_COORDINATES.split(entry));
             final int n = coordinates.size();
             if (n == 1) {
-                predicates.add(isGroup(coordinates.get(0)));
+                builder.group(coordinates.get(0));
             } else if (n == 2) {
-                predicates.add(isArtifact(coordinates.get(0), coordinates.get(1)));
+                builder.artifact(coordinates.get(0), coordinates.get(1));
+            } else if (n == 3) {
+                builder.artifact(coordinates.get(0), coordinates.get(1), parseRange(coordinates.get(2), entry, spec));
             } else {
                 throw new MojoFailureException("Invalid entry [" + entry + "] when parsing dependency spec " + spec);
             }
+            entries++;
         }
-        if (predicates.isEmpty()) {
+        if (entries == 0) {
             throw new MojoFailureException("Invalid dependency spec: " + spec);
         }
-        return predicates;
+        return builder.build();
+    }
+
+    /**
+     * Splits the entries of a spec, ignoring the commas inside version ranges and those between the restrictions
+     * of a range, such as {@code (,1.0],[2.0,)}.
+     */
+    private static List<String> splitFields(String arg) {
+        final List<String> fields = Lists.newArrayList();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= arg.length(); i++) {
+            final char c = i < arg.length() ? arg.charAt(i) : ',';
+            if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == ',' && depth <= 0 && !isRestriction(arg, i + 1)) {
+                final String field = arg.substring(start, i).trim();
+                if (!field.isEmpty()) {
+                    fields.add(field);
+                }
+                start = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return Whether the first non blank character from an index starts a range restriction.
+     */
+    private static boolean isRestriction(String arg, int from) {
+        for (int i = from; i < arg.length(); i++) {
+            final char c = arg.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[' || c == '(';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a version range. A plain version is a range containing only that version.
+     */
+    private static VersionRange parseRange(String version, String entry, String spec) throws MojoFailureException {
+        final String range = version.startsWith("[") || version.startsWith("(") ? version : "[" + version + "]";
+        try {
+            return VersionRange.createFromVersionSpec(range);
+        } catch (InvalidVersionSpecificationException e) {
+            throw new MojoFailureException("Invalid version [" + version + "] in entry [" + entry + "] when parsing dependency spec " + spec + ": " + e.getMessage());
+        }
     }
 
     /**
@@ -218,8 +246,8 @@ abstract class DependencyPolicy implements ArtifactFilter {
     private static class Include extends Some {
         private final Predicate<Artifact> predicate;
 
-        Include(Iterable<Predicate<Artifact>> predicates) {
-            this.predicate = Predicates.or(predicates);
+        Include(ArtifactMatcher matcher) {
+            this.predicate = matcher;
         }
 
         @Override
@@ -234,8 +262,8 @@ abstract class DependencyPolicy implements ArtifactFilter {
     private static class Exclude extends Some {
         private final Predicate<Artifact> predicate;
 
-        Exclude(Iterable<Predicate<Artifact>> predicates) {
-            this.predicate = Predicates.not(Predicates.or(predicates));
+        Exclude(ArtifactMatcher matcher) {
+            this.predicate = Predicates.not(matcher);
         }
 
         @Override
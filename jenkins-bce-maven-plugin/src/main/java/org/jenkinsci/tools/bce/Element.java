@@ -24,17 +24,16 @@
 package org.jenkinsci.tools.bce;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
 import japicmp.model.*;
 
-import java.util.Set;
+import java.util.List;
 
 /**
- * Object collecting binary incompatible changes in an element.
+ * Annotations of the compared elements that change how their binary incompatible changes are judged.
  *
  * @author Andres Rodriguez
  */
-final class Element<T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> {
+final class Element {
     private static final String ANN_RESTRICTED = "org.kohsuke.accmod.Restricted";
     private static final String ACC_NOEXTERNALUSE = "org.kohsuke.accmod.restrictions.NoExternalUse";
     private static final String ANN_IGNORE = IgnoreBinaryIncompatibleChange.class.getName();
@@ -42,21 +41,52 @@ final class Element<T extends JApiHasChangeStatus & JApiBinaryCompatibility & JA
     private static final String VALUE = "value";
 
     /**
-     * Element.
+     * Flag: the element is restricted to internal use.
      */
-    private final T element;
-    private final boolean noExternalUse;
-    private final boolean accepted;
-    private final boolean ignored;
+    static final int NO_EXTERNAL_USE = 1;
+    /**
+     * Flag: the changes in the element are accepted.
+     */
+    static final int ACCEPTED = 2;
+    /**
+     * Flag: the changes in the element are ignored.
+     */
+    static final int IGNORED = 4;
 
-    static <T extends JApiHasChangeStatus & JApiBinaryCompatibility & JApiHasAnnotations> Element<T> of(T element) {
-        if (element == null) {
-            return null;
+    /**
+     * Not instantiable.
+     */
+    private Element() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Scans the annotations of an element.
+     *
+     * @return The flags of the element.
+     */
+    static int getFlags(JApiHasAnnotations element) {
+        final List<JApiAnnotation> annotations = element.getAnnotations();
+        if (annotations.isEmpty()) {
+            return 0;
         }
-        return new Element<T>(element);
+        int flags = 0;
+        for (JApiAnnotation a : annotations) {
+            final String fqn = a.getFullyQualifiedName();
+            if (ANN_RESTRICTED.equals(fqn)) {
+                if (hasClassValue(a, ACC_NOEXTERNALUSE)) {
+                    flags |= NO_EXTERNAL_USE;
+                }
+            } else if (ANN_ACCEPT.equals(fqn)) {
+                flags |= ACCEPTED;
+            } else if (ANN_IGNORE.equals(fqn)) {
+                flags |= IGNORED;
+            }
+        }
+        return flags;
     }
 
-    private static Iterable<JApiAnnotationElementValue> getValues(JApiAnnotation a) {
+    private static List<JApiAnnotationElementValue> getValues(JApiAnnotation a) {
         for (JApiAnnotationElement e : a.getElements()) {
             if (VALUE.equals(e.getName())) {
                 return e.getNewElementValues();
@@ -65,63 +95,18 @@ final class Element<T extends JApiHasChangeStatus & JApiBinaryCompatibility & JA
         return ImmutableList.of();
     }
 
-    private static Set<String> getValues(JApiAnnotation a, JApiAnnotationElementValue.Type type) {
-        final Set<String> values = Sets.newHashSet();
-        for (JApiAnnotationElementValue v : getValues(a)) {
-            if (v.getType() == type) {
-                Object ev = v.getValue();
-                if (ev != null) {
-                    values.add(ev.toString());
-                }
-            }
-        }
-        return values;
-    }
-
-    private static Set<String> getStringValues(JApiAnnotation a) {
-        return getValues(a, JApiAnnotationElementValue.Type.String);
-    }
-
-    private static Set<String> getClassValues(JApiAnnotation a) {
-        return getValues(a, JApiAnnotationElementValue.Type.Class);
-    }
-
     /**
-     * Constructor.
+     * @return Whether the {@code value} element of an annotation contains the provided class.
      */
-    private Element(T element) {
-        this.element = element;
-        boolean noExternalUse = false;
-        boolean accepted = false;
-        boolean ignored = false;
-        for (JApiAnnotation a : element.getAnnotations()) {
-            final String fqn = a.getFullyQualifiedName();
-            if (ANN_RESTRICTED.equals(fqn)) {
-                noExternalUse |= getClassValues(a).contains(ACC_NOEXTERNALUSE);
-            } else if (ANN_ACCEPT.equals(fqn)) {
-                accepted = true;
-            } else if (ANN_IGNORE.equals(fqn)) {
-                ignored = true;
+    private static boolean hasClassValue(JApiAnnotation a, String className) {
+        for (JApiAnnotationElementValue v : getValues(a)) {
+            if (v.getType() == JApiAnnotationElementValue.Type.Class) {
+                final Object ev = v.getValue();
+                if (ev != null && className.equals(ev.toString())) {
+                    return true;
+                }
             }
         }
-        this.noExternalUse = noExternalUse;
-        this.accepted = accepted;
-        this.ignored = ignored;
-    }
-
-    public T getElement() {
-        return element;
-    }
-
-    public boolean isAccepted() {
-        return accepted;
-    }
-
-    public boolean isIgnored() {
-        return ignored;
-    }
-
-    public boolean isNoExternalUse() {
-        return noExternalUse;
+        return false;
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.gson.stream.JsonWriter;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time, CPU time and allocated memory of the phases of an execution. CPU time and allocated memory are
+ * measured for the thread running the phase, so phases run in background threads are accounted for properly.
+ * Phases may nest or overlap: each of them is reported on its own. Values that the JVM cannot measure are
+ * reported as {@code -1}.
+ *
+ * @author Andres Rodriguez
+ */
+final class ExecutionMetrics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Execution identifier (e.g., project coordinates and goal).
+     */
+    private final String id;
+    /**
+     * Start time of the execution.
+     */
+    private final long timestamp = System.currentTimeMillis();
+    /**
+     * Phases, in the order they were started.
+     */
+    private final List<Phase> phases = Collections.synchronizedList(Lists.<Phase>newArrayList());
+
+    /**
+     * Constructor.
+     *
+     * @param id Execution identifier.
+     */
+    ExecutionMetrics(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Starts a phase in the current thread. It must be closed in the same thread.
+     *
+     * @param name Phase name.
+     */
+    Phase start(String name) {
+        final Phase phase = new Phase(name);
+        phases.add(phase);
+        return phase;
+    }
+
+    private List<Phase> getPhases() {
+        synchronized (phases) {
+            return ImmutableList.copyOf(phases);
+        }
+    }
+
+    /**
+     * Logs the metrics as a table.
+     */
+    void log(Log log) {
+        log.info(String.format("%-20s %-32s %10s %10s %14s", "Phase", "Thread", "Wall (ms)", "CPU (ms)", "Allocated (KB)"));
+        for (Phase p : getPhases()) {
+            log.info(String.format("%-20s %-32s %10d %10d %14d", p.name, p.thread, p.getWallMillis(), p.getCpuMillis(),
+                    p.allocated < 0 ? -1 : p.allocated / 1024));
+        }
+    }
+
+    /**
+     * Writes the metrics as JSON.
+     */
+    void write(File file) throws IOException {
+        Files.createParentDirs(file);
+        try (Writer writer = Files.newWriter(file, Charsets.UTF_8)) {
+            final JsonWriter json = new JsonWriter(writer);
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("id").value(id);
+            json.name("timestamp").value(timestamp);
+            json.name("phases").beginArray();
+            for (Phase p : getPhases()) {
+                json.beginObject();
+                json.name("name").value(p.name);
+                json.name("thread").value(p.thread);
+                json.name("wallMillis").value(p.getWallMillis());
+                json.name("cpuMillis").value(p.getCpuMillis());
+                json.name("allocatedBytes").value(p.allocated);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+        }
+    }
+
+    private static long getCpuTime() {
+        if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+            return THREADS.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    private static long getAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long difference(long start, long end) {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    /**
+     * A measured phase. Closing it stops the measurement.
+     */
+    static final class Phase implements AutoCloseable {
+        private final String name;
+        private final String thread = Thread.currentThread().getName();
+        private final long startWall = System.nanoTime();
+        private final long startCpu = getCpuTime();
+        private final long startAllocated = getAllocatedBytes();
+        private volatile long wall = -1;
+        private volatile long cpu = -1;
+        private volatile long allocated = -1;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private long getWallMillis() {
+            return wall < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(wall);
+        }
+
+        private long getCpuMillis() {
+            return cpu < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(cpu);
+        }
+
+        @Override
+        public void close() {
+            if (wall < 0) {
+                wall = System.nanoTime() - startWall;
+                cpu = difference(startCpu, getCpuTime());
+                allocated = difference(startAllocated, getAllocatedBytes());
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Automaton matching a string against a set of glob patterns at once. Patterns are compiled into a single
+ * non-deterministic automaton in which patterns sharing a prefix share their states, so matching costs depend on
+ * the length of the input and the number of wildcards that are active at the same time, not on the number of
+ * patterns. In a pattern, {@code *} matches any sequence of characters and {@code ?} any single character, except
+ * for a separator character, which must be matched literally.
+ *
+ * @param <T> Type of the values associated to the patterns.
+ * @author Andres Rodriguez
+ */
+final class GlobAutomaton<T> {
+    /**
+     * Initial state.
+     */
+    private final State<T> start = new State<T>(false);
+    /**
+     * Character wildcards never match.
+     */
+    private final char separator;
+
+    /**
+     * Constructor.
+     *
+     * @param separator Character wildcards never match.
+     */
+    GlobAutomaton(char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * @return Whether a string contains wildcards.
+     */
+    static boolean isGlob(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0;
+    }
+
+    /**
+     * Adds a pattern.
+     *
+     * @param glob  Pattern to add.
+     * @param value Value to return when the pattern matches.
+     */
+    void add(String glob, T value) {
+        State<T> state = start;
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c == '*') {
+                // Consecutive stars are equivalent to a single one
+                if (!state.loop) {
+                    if (state.star == null) {
+                        state.star = new State<T>(true);
+                    }
+                    state = state.star;
+                }
+            } else if (c == '?') {
+                if (state.any == null) {
+                    state.any = new State<T>(false);
+                }
+                state = state.any;
+            } else {
+                State<T> next = state.next.get(c);
+                if (next == null) {
+                    next = new State<T>(false);
+                    state.next.put(c, next);
+                }
+                state = next;
+            }
+        }
+        state.values.add(value);
+    }
+
+    /**
+     * Returns the values of the patterns that match a string.
+     */
+    List<T> match(String input) {
+        List<State<T>> current = Lists.newArrayList();
+        List<State<T>> next = Lists.newArrayList();
+        enter(current, start);
+        for (int i = 0; i < input.length() && !current.isEmpty(); i++) {
+            final char c = input.charAt(i);
+            final boolean wildcard = c != separator;
+            for (State<T> s : current) {
+                if (wildcard && s.loop) {
+                    enter(next, s);
+                }
+                final State<T> literal = s.next.get(c);
+                if (literal != null) {
+                    enter(next, literal);
+                }
+                if (wildcard && s.any != null) {
+                    enter(next, s.any);
+                }
+            }
+            final List<State<T>> swap = current;
+            current = next;
+            next = swap;
+            next.clear();
+        }
+        List<T> values = ImmutableList.of();
+        for (State<T> s : current) {
+            if (!s.values.isEmpty()) {
+                if (values.isEmpty()) {
+                    values = Lists.newArrayList();
+                }
+                values.addAll(s.values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Adds a state, and the one reached from it matching an empty sequence, if any, to a set of states.
+     */
+    private static <T> void enter(List<State<T>> states, State<T> state) {
+        // Sets of active states are small, a list is faster than a hash set
+        if (!states.contains(state)) {
+            states.add(state);
+            if (state.star != null) {
+                enter(states, state.star);
+            }
+        }
+    }
+
+    /**
+     * State of the automaton.
+     */
+    private static final class State<T> {
+        /**
+         * Whether the state loops on any character (i.e., it is reached through a {@code *}).
+         */
+        private final boolean loop;
+        /**
+         * Transitions on literal characters.
+         */
+        private final Map<Character, State<T>> next = Maps.newHashMap();
+        /**
+         * Transition on any character ({@code ?}).
+         */
+        private State<T> any;
+        /**
+         * Transition on any sequence of characters ({@code *}).
+         */
+        private State<T> star;
+        /**
+         * Values of the patterns ending in this state.
+         */
+        private final List<T> values = Lists.newArrayListWithCapacity(1);
+
+        State(boolean loop) {
+            this.loop = loop;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import japicmp.model.JApiClass;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of the last check, used to compare only the classes that changed since then. It records the bytecode
+ * digest of every class in the new archives and the verdict for each class. It is only valid for the same
+ * inputs (baseline, options, etc.), identified by a key.
+ *
+ * @author Andres Rodriguez
+ */
+final class IncrementalState {
+    private static final String KEY = "key";
+    private static final String CLASSES = "classes";
+    private static final String NAME = "name";
+    private static final String DIGEST = "digest";
+    private static final String FAILED = "failed";
+    private static final String ACCEPTED = "accepted";
+    private static final String IGNORED = "ignored";
+
+    /**
+     * Inputs key.
+     */
+    private final String key;
+    /**
+     * Class digests, indexed by class name.
+     */
+    private final ImmutableMap<String, String> digests;
+    /**
+     * Classes with unaccepted binary incompatible changes.
+     */
+    private final ImmutableSet<String> failed;
+    /**
+     * Classes with accepted binary incompatible changes.
+     */
+    private final ImmutableSet<String> accepted;
+    /**
+     * Classes with ignored binary incompatible changes.
+     */
+    private final ImmutableSet<String> ignored;
+
+    /**
+     * Creates the state after a check.
+     *
+     * @param key     Inputs key.
+     * @param classes Metadata of the classes in the new archives.
+     * @param changes Result of the check.
+     */
+    static IncrementalState of(String key, Map<String, ClassInfo> classes, BinaryChanges changes) {
+        final ImmutableMap.Builder<String, String> digests = ImmutableMap.builder();
+        for (ClassInfo info : classes.values()) {
+            digests.put(info.getName(), info.getDigest());
+        }
+        final ImmutableSet.Builder<String> failed = ImmutableSet.builder();
+        for (JApiClass c : changes.getChangedClasses()) {
+            failed.add(c.getFullyQualifiedName());
+        }
+        return new IncrementalState(key, digests.build(), failed.build(), changes.getAcceptedClasses(), changes.getIgnoredClasses());
+    }
+
+    /**
+     * Loads the state of the last check.
+     *
+     * @param file State file.
+     * @param key  Current inputs key.
+     * @return The stored state or {@code null} if there is no usable state for the current inputs, including states
+     * without a key.
+     */
+    static IncrementalState load(File file, String key) {
+        if (!file.isFile()) {
+            return null;
+        }
+        boolean matches = false;
+        final ImmutableMap.Builder<String, String> digests = ImmutableMap.builder();
+        final ImmutableSet.Builder<String> failed = ImmutableSet.builder();
+        final ImmutableSet.Builder<String> accepted = ImmutableSet.builder();
+        final ImmutableSet.Builder<String> ignored = ImmutableSet.builder();
+        try (Reader reader = Files.newReader(file, Charsets.UTF_8)) {
+            final JsonReader json = new JsonReader(reader);
+            json.beginObject();
+            while (json.hasNext()) {
+                final String name = json.nextName();
+                if (KEY.equals(name)) {
+                    if (!key.equals(json.nextString())) {
+                        return null;
+                    }
+                    matches = true;
+                } else if (CLASSES.equals(name)) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        readClass(json, digests, failed, accepted, ignored);
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or corrupted state, start again
+            return null;
+        }
+        if (!matches) {
+            return null;
+        }
+        return new IncrementalState(key, digests.build(), failed.build(), accepted.build(), ignored.build());
+    }
+
+    private static void readClass(JsonReader json, ImmutableMap.Builder<String, String> digests, ImmutableSet.Builder<String> failed,
+                                  ImmutableSet.Builder<String> accepted, ImmutableSet.Builder<String> ignored) throws IOException {
+        String className = null;
+        String digest = null;
+        boolean isFailed = false;
+        boolean isAccepted = false;
+        boolean isIgnored = false;
+        json.beginObject();
+        while (json.hasNext()) {
+            final String name = json.nextName();
+            if (NAME.equals(name)) {
+                className = json.nextString();
+            } else if (DIGEST.equals(name)) {
+                digest = json.nextString();
+            } else if (FAILED.equals(name)) {
+                isFailed = json.nextBoolean();
+            } else if (ACCEPTED.equals(name)) {
+                isAccepted = json.nextBoolean();
+            } else if (IGNORED.equals(name)) {
+                isIgnored = json.nextBoolean();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if (className == null) {
+            throw new IllegalStateException("Class entry without name");
+        }
+        if (digest != null) {
+            digests.put(className, digest);
+        }
+        if (isFailed) {
+            failed.add(className);
+        }
+        if (isAccepted) {
+            accepted.add(className);
+        }
+        if (isIgnored) {
+            ignored.add(className);
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    private IncrementalState(String key, ImmutableMap<String, String> digests, ImmutableSet<String> failed,
+                             ImmutableSet<String> accepted, ImmutableSet<String> ignored) {
+        this.key = key;
+        this.digests = digests;
+        this.failed = failed;
+        this.accepted = accepted;
+        this.ignored = ignored;
+    }
+
+    /**
+     * Computes the classes that must be compared again: those whose bytecode changed (including added and removed
+     * ones), their subtypes and those that failed in the last check, as they must be reported again.
+     *
+     * @param classes Metadata of the classes in the new archives.
+     * @return The classes to compare again.
+     */
+    Set<String> getDirtyClasses(Map<String, ClassInfo> classes) {
+        final Set<String> changed = Sets.newHashSet();
+        for (ClassInfo info : classes.values()) {
+            if (!Objects.equal(info.getDigest(), digests.get(info.getName()))) {
+                changed.add(info.getName());
+            }
+        }
+        for (String name : digests.keySet()) {
+            if (!classes.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        final Set<String> dirty = ClassArchives.getSubtypeClosure(classes, changed);
+        dirty.addAll(failed);
+        return dirty;
+    }
+
+    /**
+     * Creates a builder with the results of the last check for the classes that are not compared again.
+     *
+     * @param dirty Classes to compare again.
+     */
+    BinaryChanges.Builder reuse(Set<String> dirty) {
+        final BinaryChanges.Builder builder = BinaryChanges.builder();
+        for (String name : accepted) {
+            if (!dirty.contains(name)) {
+                builder.accepted(name);
+            }
+        }
+        for (String name : ignored) {
+            if (!dirty.contains(name)) {
+                builder.ignored(name);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Writes the state to a file. It is written to a temporary file first and then moved into place, so an
+     * interrupted build never leaves a partially written state.
+     */
+    void save(File file) throws IOException {
+        Files.createParentDirs(file);
+        final File tmp = File.createTempFile("incremental", ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            write(tmp);
+            java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            java.nio.file.Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private void write(File file) throws IOException {
+        final Set<String> names = Sets.newTreeSet(digests.keySet());
+        names.addAll(failed);
+        names.addAll(accepted);
+        names.addAll(ignored);
+        try (Writer writer = Files.newWriter(file, Charsets.UTF_8)) {
+            final JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name(KEY).value(key);
+            json.name(CLASSES).beginArray();
+            for (String name : names) {
+                json.beginObject();
+                json.name(NAME).value(name);
+                final String digest = digests.get(name);
+                if (digest != null) {
+                    json.name(DIGEST).value(digest);
+                }
+                writeFlag(json, FAILED, failed.contains(name));
+                writeFlag(json, ACCEPTED, accepted.contains(name));
+                writeFlag(json, IGNORED, ignored.contains(name));
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+        }
+    }
+
+    private static void writeFlag(JsonWriter json, String name, boolean value) throws IOException {
+        if (value) {
+            json.name(name).value(true);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MavenPluginManager;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.PluginConfigurationException;
+import org.apache.maven.plugin.PluginContainerException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import java.util.List;
+
+/**
+ * Mojo executing the Binary Compatibility Enforcement of every plugin module of the reactor in a single pass, meant
+ * to be run from the command line after the modules have been packaged (e.g.,
+ * {@code mvn install jenkins-bce:check-aggregate}). Each module is checked by its own instance of the {@code check}
+ * goal, configured with the configuration of that goal in the module (the {@code check} execution if there is one,
+ * the plugin configuration otherwise), so every parameter is evaluated against the module and its build. Running
+ * every check in the same execution means that the comparison libraries are loaded and warmed up only once and that
+ * the class metadata cache and the session caches (e.g., the update center index) are shared. Each module gets its
+ * own reports in its build directory, and the build fails after every module has been checked if any of them has
+ * unaccepted changes.
+ *
+ * @author Andres Rodriguez
+ */
+@Mojo(name = "check-aggregate", aggregator = true, threadSafe = true)
+public class JenkinsBCEAggregateMojo extends AbstractBCEMojo {
+    /**
+     * Goal run for each module.
+     */
+    private static final String CHECK = "check";
+    /**
+     * Execution id used when a module does not bind the check goal.
+     */
+    private static final String DEFAULT_EXECUTION = "default-cli";
+
+    /**
+     * Descriptor of this plugin.
+     */
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
+    /**
+     * Plugin manager, used to configure the check of each module.
+     */
+    @Component
+    private MavenPluginManager pluginManager;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final List<MavenProject> projects = session.getProjects();
+        final MojoDescriptor descriptor = plugin.getMojo(CHECK);
+        final List<String> failed = Lists.newArrayList();
+        int checked = 0;
+        for (MavenProject project : projects) {
+            if (!"hpi".equals(project.getPackaging())) {
+                continue;
+            }
+            infof("Checking binary compatibility of module %s", project.getId());
+            checked++;
+            try {
+                check(project, descriptor);
+            } catch (MojoFailureException e) {
+                failed.add(project.getId());
+            }
+        }
+        infof("Checked binary compatibility of %d of %d reactor modules", checked, projects.size());
+        if (!failed.isEmpty()) {
+            throw failure("Binary compatibility check failed for modules: %s", Joiner.on(", ").join(failed));
+        }
+    }
+
+    /**
+     * Runs the check goal for a module, with its configuration.
+     */
+    private void check(MavenProject project, MojoDescriptor descriptor) throws MojoExecutionException, MojoFailureException {
+        final MavenSession projectSession = session.clone();
+        projectSession.setCurrentProject(project);
+        final MojoExecution execution = createExecution(project, descriptor);
+        final org.apache.maven.plugin.Mojo mojo;
+        try {
+            mojo = pluginManager.getConfiguredMojo(org.apache.maven.plugin.Mojo.class, projectSession, execution);
+        } catch (PluginConfigurationException | PluginContainerException e) {
+            throw new MojoExecutionException("Unable to configure the check of module " + project.getId(), e);
+        }
+        try {
+            mojo.execute();
+        } finally {
+            pluginManager.releaseMojo(mojo, execution);
+        }
+    }
+
+    /**
+     * Creates the execution of the check goal for a module, as the lifecycle would: the configuration of the module
+     * for the goal, restricted to the parameters of the goal and completed with their defaults.
+     */
+    private MojoExecution createExecution(MavenProject project, MojoDescriptor descriptor) {
+        String executionId = DEFAULT_EXECUTION;
+        Xpp3Dom configuration = null;
+        final Plugin model = project.getPlugin(plugin.getPluginLookupKey());
+        if (model != null) {
+            configuration = (Xpp3Dom) model.getConfiguration();
+            // Plugin configuration has already been merged into the executions
+            for (PluginExecution e : model.getExecutions()) {
+                if (e.getGoals().contains(CHECK)) {
+                    executionId = e.getId();
+                    configuration = (Xpp3Dom) e.getConfiguration();
+                    break;
+                }
+            }
+        }
+        final MojoExecution execution = new MojoExecution(descriptor, executionId, MojoExecution.Source.CLI);
+        execution.setConfiguration(finalizeConfiguration(descriptor, configuration));
+        return execution;
+    }
+
+    private static Xpp3Dom finalizeConfiguration(MojoDescriptor descriptor, Xpp3Dom configuration) {
+        final Xpp3Dom defaults = getDefaults(descriptor);
+        final Xpp3Dom result = new Xpp3Dom("configuration");
+        if (descriptor.getParameters() == null) {
+            return result;
+        }
+        for (org.apache.maven.plugin.descriptor.Parameter p : descriptor.getParameters()) {
+            Xpp3Dom value = null;
+            if (configuration != null) {
+                value = configuration.getChild(p.getName());
+                if (value == null && p.getAlias() != null) {
+                    value = configuration.getChild(p.getAlias());
+                }
+            }
+            value = Xpp3Dom.mergeXpp3Dom(value, defaults.getChild(p.getName()), Boolean.TRUE);
+            if (value != null) {
+                value = new Xpp3Dom(value, p.getName());
+                if (Strings.isNullOrEmpty(value.getAttribute("implementation")) && !Strings.isNullOrEmpty(p.getImplementation())) {
+                    value.setAttribute("implementation", p.getImplementation());
+                }
+                result.addChild(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The default configuration of a goal: property expressions and default values of its parameters.
+     */
+    private static Xpp3Dom getDefaults(MojoDescriptor descriptor) {
+        final Xpp3Dom defaults = new Xpp3Dom("configuration");
+        final PlexusConfiguration configuration = descriptor.getMojoConfiguration();
+        if (configuration == null) {
+            return defaults;
+        }
+        for (PlexusConfiguration c : configuration.getChildren()) {
+            final String value = c.getValue(null);
+            final String defaultValue = c.getAttribute("default-value", null);
+            if (value != null || defaultValue != null) {
+                final Xpp3Dom e = new Xpp3Dom(c.getName());
+                e.setValue(value);
+                if (defaultValue != null) {
+                    e.setAttribute("default-value", defaultValue);
+                }
+                defaults.addChild(e);
+            }
+        }
+        return defaults;
+    }
+}
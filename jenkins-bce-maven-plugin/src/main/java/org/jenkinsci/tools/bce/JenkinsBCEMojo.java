@@ -23,53 +23,70 @@
  */
 package org.jenkinsci.tools.bce;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
-import com.google.gson.stream.JsonReader;
-import com.squareup.okhttp.OkHttpClient;
-import com.squareup.okhttp.Request;
-import japicmp.cmp.JarArchiveComparator;
-import japicmp.cmp.JarArchiveComparatorOptions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import japicmp.config.Options;
 import japicmp.model.AccessModifier;
 import japicmp.model.JApiClass;
-import japicmp.output.stdout.StdoutOutputGenerator;
+import org.apache.maven.ProjectDependenciesResolver;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.versioning.VersionRange;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.project.MavenProject;
 
 import javax.annotation.Nullable;
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import static japicmp.cli.JApiCli.ClassPathMode.TWO_SEPARATE_CLASSPATHS;
 
 /**
- * Mojo executing the Binary Compatibility Enforcement.
+ * Mojo executing the Binary Compatibility Enforcement. It can run concurrently for several modules: the state
+ * shared between executions (update center data, class metadata) is kept in concurrent caches that compute each
+ * value only once.
  *
  * @author Andres Rodriguez
  */
-@Mojo(name = "check")
-public class JenkinsBCEMojo extends AbstractMojo {
+@Mojo(name = "check", threadSafe = true)
+public class JenkinsBCEMojo extends AbstractBCEMojo {
     /**
      * Update center baseline specification.
      */
@@ -82,25 +99,41 @@ public class JenkinsBCEMojo extends AbstractMojo {
      * Artifact baseline specification.
      */
     private static final String ARTIFACT = "artifact:";
+    /**
+     * API snapshot baseline specification.
+     */
+    private static final String SNAPSHOT = "snapshot:";
     /**
      * Skip comparison baseline specification.
      */
     private static final String SKIP = "skip";
     /**
-     * Current Maven Project.
+     * JSON report, in the build directory.
      */
-    @Parameter(defaultValue = "${project}")
-    private MavenProject mavenProject;
+    private static final String REPORT = "jenkins-bce/report.json";
     /**
-     * Project build directory.
+     * JUnit XML report, in the build directory.
      */
-    @Parameter(property = "project.build.directory", required = true)
-    private File projectBuildDir;
+    private static final String JUNIT_REPORT = "jenkins-bce/TEST-jenkins-bce.xml";
+    /**
+     * Text report, in the build directory.
+     */
+    private static final String TRANSCRIPT = "jenkins-bce/report.txt";
+    /**
+     * Descriptor of this plugin.
+     */
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    private PluginDescriptor plugin;
     /**
      * Artifact resolver.
      */
     @Component
     private ArtifactResolver artifactResolver;
+    /**
+     * Project dependencies resolver, only used with {@code useBuildOutput}.
+     */
+    @Component
+    private ProjectDependenciesResolver projectDependenciesResolver;
     @Parameter(defaultValue = "${localRepository}")
     /** Local Maven Repository. */
     private ArtifactRepository localRepository;
@@ -115,6 +148,8 @@ public class JenkinsBCEMojo extends AbstractMojo {
      * <li>{@code update:<i>url</i>}: use update center.</li>
      * <li>{@code version:<i>version</i>}: use the same artifact of the current project, with another version.</li>
      * <li>{@code artifact:<i>groupId</i>:<i>artifact</i>:<i>version</i>}: use the specified jar artifact.
+     * <li>{@code snapshot:<i>groupId</i>:<i>artifact</i>:<i>version</i>}: use the API snapshot of the specified
+     * artifact, written by the {@code snapshot} goal. Dependencies are not used.</li>
      * </ul>
      */
     @Parameter(defaultValue = "update:https://updates.jenkins-ci.org/update-center.json")
@@ -130,109 +165,593 @@ public class JenkinsBCEMojo extends AbstractMojo {
      * </ul>
      * In the last two cases, {@code <i>pcoord</i>} can be {@code artifact:<i>groupId</i>:<i>artifact</i>}
      * to match every version of the specified artifact or {@code artifact:<i>groupId</i>} to match every
-     * artifact from the specified group.
+     * artifact from the specified group. A version or version range can be added to match only some versions
+     * (e.g., {@code org.jenkins-ci.main:jenkins-core:[1.600,2.0)}). Group and artifact ids may contain the {@code *}
+     * and {@code ?} wildcards (e.g., {@code org.jenkins-ci.*:*-api}). A group ending in {@code .*} matches that group
+     * and every group under it, and a single {@code *} matches every group.
      */
     @Parameter(defaultValue = "none")
     private String dependencySpec;
+    /**
+     * Whether to compare only the classes that changed since the last check against the same baseline.
+     * The state of the last check is kept in {@code jenkins-bce/incremental.json} in the build directory.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean incremental;
+    /**
+     * Whether to resolve the baseline and the current version at the same time.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean parallelResolution;
+    /**
+     * Time (in minutes) during which a cached update center is used without checking the server.
+     * Once expired, the cached copy is revalidated with a conditional request.
+     */
+    @Parameter(defaultValue = "60")
+    private long updateCenterTtl;
+    /**
+     * Comparison engine. It can be:
+     * <ul>
+     * <li>{@code japicmp}: load every class of both versions in japicmp.</li>
+     * <li>{@code signature}: compare the API signature of the class files first and load in japicmp only the
+     * classes whose signature changed, and their subtypes. It needs much less memory on large archives.</li>
+     * </ul>
+     */
+    @Parameter(defaultValue = "japicmp")
+    private String engine;
+    /**
+     * Number of threads used to compare the archives. If greater than one, the classes are split by package and
+     * compared in parallel. Results are reported in the same order regardless of this value.
+     */
+    @Parameter(defaultValue = "1")
+    private int parallelism;
+    /**
+     * Whether to stop at the first class with binary incompatible changes that are neither accepted nor ignored.
+     * Classes are compared in growing batches of whole packages, in name order, and only the first failing class is
+     * reported.
+     * Useful for gating, where knowing that there is an incompatibility is enough.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean failFast;
+    /**
+     * Maximum number of classes with binary incompatible changes to report in detail. The rest are only counted.
+     * If zero or negative, every class is reported.
+     */
+    @Parameter(defaultValue = "0")
+    private int reportLimit;
+    /**
+     * Whether to report the wall time, CPU time and allocated memory of each phase of the check. They are logged
+     * and written to {@code jenkins-bce/metrics.json} in the build directory.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean metrics;
+    /**
+     * Whether to cache the verdict of the check in the local repository, indexed by a fingerprint of its inputs
+     * (compared archives, baseline, configuration and plugin version). A check with the same inputs as a cached
+     * one replays its verdict and reports instead of comparing again.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean verdictCache;
+    /**
+     * Cache shared between machines, such as ephemeral CI agents: {@code file:<i>path</i>} for a directory (e.g.,
+     * on a network file system) or an {@code http://} or {@code https://} URL for a server reading entries with
+     * {@code GET} and writing them with {@code PUT}. Other stores can be added to the plugin dependencies as
+     * {@link CacheStore.Factory} services. Check verdicts are shared if {@code verdictCache} is enabled,
+     * and API snapshots of released baselines are shared if {@code remoteSnapshots} is enabled.
+     */
+    @Parameter
+    private String remoteCache;
+    /**
+     * Whether to compare released baselines through their API snapshots, shared in the remote cache, instead of
+     * their archives. It only applies if there is a remote cache and no dependencies are compared. Snapshots are
+     * much cheaper to download and load, but the results may differ for changes involving package private types.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean remoteSnapshots;
+    /**
+     * Whether to take the new version from the build output directory and the compile class path of the project
+     * instead of resolving the project artifact. It does not need the project to be packaged, so the check can be
+     * bound to the {@code process-classes} phase. The compile class path is resolved only in this mode.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean useBuildOutput;
+    /**
+     * Build output directory, used if {@code useBuildOutput} is enabled.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+    /**
+     * Whether to write a JSON report of the check to {@code jenkins-bce/report.json} in the build directory.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean report;
+    /**
+     * Whether to write a JUnit XML report of the check to {@code jenkins-bce/TEST-jenkins-bce.xml} in the build
+     * directory.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean junitReport;
+    /**
+     * Metrics of the current execution.
+     */
+    private ExecutionMetrics executionMetrics;
 
-    private void error(CharSequence s) {
-        getLog().error(s);
+    @SuppressWarnings("try")
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip()) {
+            warn("Skipping execution.");
+            return;
+        }
+        // Check we are in a plugin
+        if (!isPlugin()) {
+            warn("Not a Jenkins plugin. Skipping");
+            return;
+        }
+        executionMetrics = new ExecutionMetrics(mavenProject.getId());
+        try (ExecutionMetrics.Phase phase = phase("check")) {
+            check();
+        } catch(MojoFailureException e) {
+            error(e.getMessage());
+            throw e;
+        } finally {
+            reportMetrics();
+        }
     }
 
-    private void errorf(String s, Object... args) {
-        error(String.format(s, args));
+    @SuppressWarnings("try")
+    private void check() throws MojoFailureException {
+        // Get the old package file, in the background if possible
+        final Future<ResolvedArtifact> oldVersionFuture = submitOldVersion();
+        final ResolvedArtifact newVersion;
+        final ResolvedArtifact oldVersion;
+        try {
+            // Get the new package file.
+            // final List<File> newVersion = ImmutableList.of(new File(projectBuildDir, mavenProject.getArtifactId() + ".jar"));
+            newVersion = getNewVersion();
+            oldVersion = getResolved(oldVersionFuture);
+        } finally {
+            oldVersionFuture.cancel(true);
+        }
+        final Options options = createOptions(oldVersion, newVersion);
+        final VerdictCache cache = verdictCache ? new VerdictCache(new File(localRepository.getBasedir(), ".cache/jenkins-bce/verdicts"), getRemoteCache(), getLog()) : null;
+        final String fingerprint = cache == null ? null : getFingerprint(oldVersion, options);
+        if (fingerprint != null) {
+            final VerdictCache.Verdict verdict = cache.get(fingerprint);
+            if (verdict != null) {
+                replay(verdict);
+                return;
+            }
+        }
+        final BinaryChanges changes = compare(options);
+        writeReports(changes);
+        final File transcript = new File(projectBuildDir, TRANSCRIPT);
+        if (!changes.isEmpty()) {
+            // In fail fast mode only the first class is reported
+            final List<JApiClass> reported = failFast ? changes.getChangedClasses().subList(0, 1) : changes.getChangedClasses();
+            try (ExecutionMetrics.Phase phase = phase("report");
+                 Writer writer = fingerprint == null ? null : newWriter(transcript)) {
+                new ChangesReporter(options, getLog(), reportLimit, writer).report(reported);
+            } catch (IOException e) {
+                warnf("Unable to write the report transcript %s: %s", transcript, e.getMessage());
+            }
+        }
+        if (fingerprint != null) {
+            try {
+                cache.put(fingerprint, changes, changes.isEmpty() ? null : transcript, getReportFile(report, REPORT),
+                        getReportFile(junitReport, JUNIT_REPORT));
+            } catch (IOException e) {
+                warnf("Unable to store the verdict of the check: %s", e.getMessage());
+            }
+        }
+        if (!changes.isEmpty()) {
+            throw new MojoFailureException("Binary Incompatible Changes Detected");
+        }
+        warnAccepted(changes.isIgnored(), changes.isAccepted());
     }
 
-    private void warn(CharSequence s) {
-        getLog().warn(s);
+    private void warnAccepted(boolean ignored, boolean accepted) {
+        if (ignored) {
+            warn("You have ignored binary compatibility issues. Please think again");
+        }
+        if (accepted) {
+            warn("You have accepted binary compatibility issues. Remember to document them in the release notes");
+        }
     }
 
-    private void warnf(String s, Object... args) {
-        warn(String.format(s, args));
+    private static Writer newWriter(File file) throws IOException {
+        Files.createParentDirs(file);
+        return Files.newWriter(file, Charsets.UTF_8);
     }
 
-    private void info(CharSequence s) {
-        getLog().info(s);
+    /**
+     * @return A report file of the check, if enabled.
+     */
+    private File getReportFile(boolean enabled, String name) {
+        return enabled ? new File(projectBuildDir, name) : null;
     }
 
-    private void infof(String s, Object... args) {
-        info(String.format(s, args));
+    /**
+     * Replays the verdict of a previous check with the same inputs: restores its reports and logs its text report.
+     */
+    private void replay(VerdictCache.Verdict verdict) throws MojoFailureException {
+        info("The inputs have not changed since a previous check: replaying its verdict");
+        try {
+            restore(verdict.getReport(), getReportFile(report, REPORT));
+            restore(verdict.getJUnitReport(), getReportFile(junitReport, JUNIT_REPORT));
+            if (verdict.isFailed() && verdict.getTranscript() != null) {
+                try (BufferedReader reader = new BufferedReader(Files.newReader(verdict.getTranscript(), Charsets.UTF_8))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        error(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            warnf("Unable to replay the reports of the previous check: %s", e.getMessage());
+        }
+        if (verdict.isFailed()) {
+            throw new MojoFailureException("Binary Incompatible Changes Detected");
+        }
+        warnAccepted(verdict.isIgnored(), verdict.isAccepted());
     }
 
-    private MojoFailureException failure(Throwable cause, String format, Object... args) {
-        return new MojoFailureException(String.format(format, args), cause);
+    private static void restore(File cached, File target) throws IOException {
+        if (cached != null && target != null) {
+            Files.createParentDirs(target);
+            Files.copy(cached, target);
+        }
     }
 
-    private MojoFailureException failure(String format, Object... args) {
-        return new MojoFailureException(String.format(format, args));
+    /**
+     * Writes the enabled machine readable reports of the check.
+     */
+    @SuppressWarnings("try")
+    private void writeReports(BinaryChanges changes) {
+        if (!report && !junitReport) {
+            return;
+        }
+        final ReportWriter writer = new ReportWriter(mavenProject.getId(), baseline, changes);
+        try (ExecutionMetrics.Phase phase = phase("write-report")) {
+            if (report) {
+                writer.writeJson(new File(projectBuildDir, REPORT));
+            }
+            if (junitReport) {
+                writer.writeJUnit(new File(projectBuildDir, JUNIT_REPORT));
+            }
+        } catch (IOException e) {
+            warnf("Unable to write the check report: %s", e.getMessage());
+        }
     }
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
-        if (skip()) {
-            warn("Skipping execution.");
+    /**
+     * Starts measuring a phase of the execution in the current thread.
+     */
+    private ExecutionMetrics.Phase phase(String name) {
+        return executionMetrics.start(name);
+    }
+
+    /**
+     * Logs and writes the metrics of the execution, if enabled.
+     */
+    private void reportMetrics() {
+        if (!metrics) {
             return;
         }
-        // Check we are in a plugin
-        // We will check core later
-        final String packaging = mavenProject.getPackaging();
-        if (!"hpi".equals(packaging)) {
-            warn("Not a Jenkins plugin. Skipping");
-            return;
+        executionMetrics.log(getLog());
+        final File file = new File(projectBuildDir, "jenkins-bce/metrics.json");
+        try {
+            executionMetrics.write(file);
+        } catch (IOException e) {
+            warnf("Unable to write execution metrics to %s: %s", file, e.getMessage());
         }
+    }
+
+    /**
+     * Compares the archives and filters the results, incrementally if possible.
+     */
+    @SuppressWarnings("try")
+    private BinaryChanges compare(Options options) throws MojoFailureException {
+        final ComparisonEngine comparisonEngine = getComparisonEngine();
         try {
-            // Get the new package file.
-            // final List<File> newVersion = ImmutableList.of(new File(projectBuildDir, mavenProject.getArtifactId() + ".jar"));
-            final Iterable<File> newVersion = getNewVersionFiles();
-            // Get the old package file
-            final Iterable<File> oldVersion = getOldVersionFiles();
-            final Options options = createOptions(oldVersion, newVersion);
-            JarArchiveComparator jarArchiveComparator = new JarArchiveComparator(JarArchiveComparatorOptions.of(options));
-            List<JApiClass> jApiClasses = jarArchiveComparator.compare(options.getOldArchives(), options.getNewArchives());
-            // Filter the list
-            final BinaryChanges changes = BinaryChanges.of(jApiClasses);
-            if (!changes.isEmpty()) {
-                // TODO: analyze if custom reporting needed
-                StdoutOutputGenerator stdoutOutputGenerator = new StdoutOutputGenerator(options, Lists.newLinkedList(changes.getChangedClasses()));
-                errorf("Binary Incompatible Changes Detected\n %s", stdoutOutputGenerator.generate());
-                throw new MojoFailureException("Binary Incompatible Changes Detected");
+            if (!incremental) {
+                return compare(comparisonEngine, options, null, BinaryChanges.builder());
+            }
+            final File stateFile = new File(projectBuildDir, "jenkins-bce/incremental.json");
+            final String key = getIncrementalKey(options);
+            final Map<String, ClassInfo> classes;
+            final IncrementalState previous;
+            try (ExecutionMetrics.Phase phase = phase("index")) {
+                classes = ClassArchives.index(options.getNewArchives());
+                previous = IncrementalState.load(stateFile, key);
+            }
+            final BinaryChanges changes;
+            if (previous == null) {
+                changes = compare(comparisonEngine, options, null, BinaryChanges.builder());
             } else {
-                if (changes.isIgnored()) {
-                    warn("You have ignored binary compatibility issues. Please think again");
-                }
-                if (changes.isAccepted()) {
-                    warn("You have accepted binary compatibility issues. Remember to document them in the release notes");
-                }
+                final Set<String> dirty = previous.getDirtyClasses(classes);
+                infof("Incremental check: comparing %d of %d classes", dirty.size(), classes.size());
+                changes = dirty.isEmpty() ? previous.reuse(dirty).build() : compare(comparisonEngine, options, dirty, previous.reuse(dirty));
+            }
+            // A fail fast check that found changes may have skipped classes, so its results are not complete
+            if (!failFast || changes.isEmpty()) {
+                IncrementalState.of(key, classes, changes).save(stateFile);
+            }
+            return changes;
+        } catch (IOException e) {
+            throw failure(e, "Unable to compare archives");
+        }
+    }
+
+    /**
+     * Compares and filters some classes, stopping at the first failure in fail fast mode.
+     */
+    @SuppressWarnings("try")
+    private BinaryChanges compare(ComparisonEngine comparisonEngine, Options options, @Nullable Set<String> classes,
+                                  BinaryChanges.Builder builder) throws IOException {
+        if (!failFast) {
+            return filter(builder, compare(comparisonEngine, options, classes));
+        }
+        // Comparison and filtering are interleaved, so they are measured together
+        try (ExecutionMetrics.Phase phase = phase("compare")) {
+            if (comparisonEngine.compareUntilFailure(options, classes, builder)) {
+                info("Fail fast: stopped comparing at the first binary incompatible change");
             }
-        } catch(MojoFailureException e) {
-            error(e.getMessage());
-            throw e;
         }
+        return builder.build();
+    }
 
+    @SuppressWarnings("try")
+    private List<JApiClass> compare(ComparisonEngine comparisonEngine, Options options, @Nullable Set<String> classes) throws IOException {
+        try (ExecutionMetrics.Phase phase = phase("compare")) {
+            return comparisonEngine.compare(options, classes);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private BinaryChanges filter(BinaryChanges.Builder builder, List<JApiClass> classes) {
+        try (ExecutionMetrics.Phase phase = phase("filter")) {
+            return builder.addAll(classes).build();
+        }
+    }
+
+    private ComparisonEngine getComparisonEngine() throws MojoFailureException {
+        if (parallelism < 1) {
+            throw failure("Invalid parallelism [%d]", parallelism);
+        }
+        final ComparisonEngine comparisonEngine = ComparisonEngine.of(engine, new File(projectBuildDir, "jenkins-bce/work"), parallelism);
+        if (comparisonEngine == null) {
+            throw failure("Unknown comparison engine [%s]. Valid values are [%s, %s]", engine, ComparisonEngine.JAPICMP, ComparisonEngine.SIGNATURE);
+        }
+        return comparisonEngine;
+    }
+
+    /**
+     * Computes the key of the inputs that must not change for the results of a previous check to be reused.
+     * The new archives are not part of it, as their classes are tracked one by one.
+     */
+    private String getIncrementalKey(Options options) {
+        final Hasher hasher = Hashing.sha1().newHasher();
+        putConfiguration(hasher, options);
+        for (File f : options.getOldArchives()) {
+            hasher.putString(f.getAbsolutePath(), Charsets.UTF_8);
+            hasher.putLong(f.length());
+            hasher.putLong(f.lastModified());
+        }
+        hasher.putString(options.getOldClassPath().or(""), Charsets.UTF_8);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Adds the configuration of the check to a hasher.
+     */
+    private void putConfiguration(Hasher hasher, Options options) {
+        hasher.putString(plugin == null ? "" : plugin.getId(), Charsets.UTF_8);
+        hasher.putString(baseline, Charsets.UTF_8);
+        hasher.putString(Strings.nullToEmpty(dependencySpec), Charsets.UTF_8);
+        hasher.putString(options.getAccessModifier().name(), Charsets.UTF_8);
+        hasher.putBoolean(options.isIncludeSynthetic());
+        hasher.putBoolean(options.isIgnoreMissingClasses());
+    }
+
+    /**
+     * Computes the fingerprint of every input of the check: configuration, comparison and reporting options and the
+     * contents of the compared archives and class paths. Every option that may change the verdict or the reports is
+     * included, such as the engine or the incremental mode, whose reports only contain the classes compared again.
+     *
+     * @return The fingerprint or {@code null} if the archives cannot be read, in which case the check is not cached.
+     */
+    private String getFingerprint(ResolvedArtifact oldVersion, Options options) {
+        final Hasher hasher = Hashing.sha1().newHasher();
+        putConfiguration(hasher, options);
+        hasher.putString(mavenProject.getId(), Charsets.UTF_8);
+        hasher.putString(oldVersion.getArtifact().getId(), Charsets.UTF_8);
+        hasher.putString(Strings.nullToEmpty(engine), Charsets.UTF_8);
+        hasher.putInt(parallelism);
+        hasher.putBoolean(incremental);
+        hasher.putBoolean(failFast);
+        hasher.putInt(reportLimit);
+        hasher.putBoolean(report);
+        hasher.putBoolean(junitReport);
+        hasher.putBoolean(remoteSnapshots);
+        try {
+            putArchives(hasher, options.getOldArchives());
+            putArchives(hasher, getClassPath(options.getOldClassPath()));
+            putArchives(hasher, options.getNewArchives());
+            putArchives(hasher, getClassPath(options.getNewClassPath()));
+        } catch (IOException e) {
+            warnf("Unable to fingerprint the inputs of the check: %s", e.getMessage());
+            return null;
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putArchives(Hasher hasher, Iterable<File> archives) throws IOException {
+        // Separates the lists of archives
+        hasher.putChar('|');
+        for (File f : archives) {
+            hasher.putString(ClassInfoCache.getDigest(f), Charsets.UTF_8);
+        }
+    }
+
+    private static List<File> getClassPath(Optional<String> classPath) {
+        final List<File> files = Lists.newArrayList();
+        if (classPath.isPresent()) {
+            for (String path : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(classPath.get())) {
+                files.add(new File(path));
+            }
+        }
+        return files;
     }
 
     /**
      * @return Whether we should skip execution.
      */
-    private boolean skip() {
+    final boolean skip() {
         return mavenProject == null || baseline == null || baseline.startsWith(SKIP);
     }
 
-    private Iterable<File> getNewVersionFiles() throws MojoFailureException {
-        return new ResolvedArtifact(createArtifact(mavenProject.getGroupId(), mavenProject.getArtifactId(), mavenProject.getVersion())).getFiles();
+    @SuppressWarnings("try")
+    private ResolvedArtifact getNewVersion() throws MojoFailureException {
+        try (ExecutionMetrics.Phase phase = phase("resolve-current")) {
+            if (useBuildOutput) {
+                return getBuildOutputVersion();
+            }
+            return new ResolvedArtifact(createArtifact(mavenProject.getGroupId(), mavenProject.getArtifactId(), mavenProject.getVersion()));
+        }
+    }
+
+    /**
+     * Takes the new version from the build output directory and the resolved dependencies of the project, archiving
+     * the classes so that they can be compared.
+     */
+    private ResolvedArtifact getBuildOutputVersion() throws MojoFailureException {
+        if (!classesDirectory.isDirectory()) {
+            throw failure("Build output directory %s not found. The check must be run after compilation", classesDirectory);
+        }
+        final File archive = new File(projectBuildDir, "jenkins-bce/classes.jar");
+        try {
+            final int n = ClassArchives.archive(classesDirectory, archive);
+            infof("Checking %d classes from %s", n, classesDirectory);
+        } catch (IOException e) {
+            throw failure(e, "Unable to archive build output directory %s", classesDirectory);
+        }
+        final Artifact main = createArtifact(mavenProject.getGroupId(), mavenProject.getArtifactId(), mavenProject.getVersion());
+        main.setFile(archive);
+        main.setResolved(true);
+        final List<Artifact> artifacts = Lists.newArrayList(main);
+        final DependencyPolicy dependencyPolicy = getDependencyPolicy();
+        for (Artifact a : resolveDependencies()) {
+            if (dependencyPolicy.include(a)) {
+                artifacts.add(a);
+            }
+        }
+        return new ResolvedArtifact(main, artifacts);
+    }
+
+    /**
+     * Resolves the compile class path of the project. The goal does not require dependency resolution, as only
+     * this mode needs it.
+     */
+    private Set<Artifact> resolveDependencies() throws MojoFailureException {
+        try {
+            return projectDependenciesResolver.resolve(mavenProject, ImmutableList.of(Artifact.SCOPE_COMPILE), session);
+        } catch (AbstractArtifactResolutionException e) {
+            throw failure(e, "Unable to resolve the dependencies of %s", mavenProject.getId());
+        }
+    }
+
+    /**
+     * Starts the resolution of the old version. If it was prefetched, the prefetched resolution is used. Otherwise,
+     * if parallel resolution is enabled, the old version is resolved in a background thread while the new one is
+     * being resolved.
+     */
+    private Future<ResolvedArtifact> submitOldVersion() {
+        final Future<ResolvedArtifact> prefetched = SessionContext.of(session).takePrefetched(mavenProject.getId(), getPrefetchKey());
+        if (prefetched != null) {
+            info(prefetched.isDone() ? "Using prefetched baseline" : "Waiting for prefetched baseline");
+            return prefetched;
+        }
+        final FutureTask<ResolvedArtifact> task = new FutureTask<ResolvedArtifact>(new Callable<ResolvedArtifact>() {
+            @Override
+            public ResolvedArtifact call() throws MojoFailureException {
+                return getOldVersion();
+            }
+        });
+        if (parallelResolution) {
+            final Thread thread = new Thread(task, "jenkins-bce-resolver-" + mavenProject.getArtifactId());
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            task.run();
+        }
+        return task;
     }
 
-    private Iterable<File> getOldVersionFiles() throws MojoFailureException {
+    /**
+     * Starts resolving the old version in a background thread, to be used by a later check of the same project
+     * with the same configuration in this session.
+     */
+    final void prefetchOldVersion() {
+        // Metrics of the background resolution are not reported
+        executionMetrics = new ExecutionMetrics(mavenProject.getId());
+        SessionContext.of(session).prefetch(mavenProject.getId(), getPrefetchKey(), new Callable<ResolvedArtifact>() {
+            @Override
+            public ResolvedArtifact call() throws MojoFailureException {
+                return getOldVersion();
+            }
+        }, "jenkins-bce-prefetch-" + mavenProject.getArtifactId());
+    }
+
+    /**
+     * @return The key of a prefetched old version of the project, made of every input of its resolution.
+     */
+    private String getPrefetchKey() {
+        final List<Object> inputs = Lists.<Object>newArrayList(baseline, dependencySpec, remoteCache, remoteSnapshots,
+                updateCenterTtl, localRepository.getBasedir());
+        for (ArtifactRepository repository : artifactRepositories) {
+            inputs.add(repository.getId());
+            inputs.add(repository.getUrl());
+        }
+        return Joiner.on('|').useForNull("").join(inputs);
+    }
+
+    /**
+     * Waits for a background resolution, reporting its errors as if it had been performed in the current thread.
+     */
+    private <T> T getResolved(Future<T> future) throws MojoFailureException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure(e, "Interrupted while resolving baseline");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            Throwables.propagateIfPossible(cause, MojoFailureException.class);
+            throw failure(cause, "Unable to resolve baseline");
+        }
+    }
+
+    @SuppressWarnings("try")
+    private ResolvedArtifact getOldVersion() throws MojoFailureException {
+        try (ExecutionMetrics.Phase phase = phase("resolve-baseline")) {
+            return getBaseline();
+        }
+    }
+
+    private ResolvedArtifact getBaseline() throws MojoFailureException {
         ResolvedArtifact resolved = getUpdateCenterBaseline();
         if (resolved == null) {
             resolved = getVersionBaseline();
             if (resolved == null) {
                 resolved = getArtifactBaseline();
                 if (resolved == null) {
-                    throw failure("Unable to resolve baseline");
+                    resolved = getSnapshotBaseline();
+                    if (resolved == null) {
+                        throw failure("Unable to resolve baseline");
+                    }
                 }
             }
         }
-        return resolved.getFiles();
+        return resolved;
     }
 
     private String getBaselinePayload(String prefix) {
@@ -248,7 +767,16 @@ public class JenkinsBCEMojo extends AbstractMojo {
      * @return The created artifact. Must be resolved.
      */
     private Artifact createArtifact(String groupId, String artifactId, String version) {
-        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler("jar"));
+        return createArtifact(groupId, artifactId, version, null);
+    }
+
+    /**
+     * Creates a JAR artifact from Maven Coordinates and a classifier.
+     *
+     * @return The created artifact. Must be resolved.
+     */
+    private Artifact createArtifact(String groupId, String artifactId, String version, String classifier) {
+        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), Artifact.SCOPE_COMPILE, "jar", classifier, new DefaultArtifactHandler("jar"));
     }
 
     /**
@@ -265,32 +793,61 @@ public class JenkinsBCEMojo extends AbstractMojo {
         return createArtifact(coords.get(0), coords.get(1), coords.get(2));
     }
 
+    @SuppressWarnings("try")
     private ResolvedArtifact getUpdateCenterBaseline() throws MojoFailureException {
         final String url = getBaselinePayload(UPDATE_CENTER);
         if (url == null || url.isEmpty()) {
             return null;
         }
-        final JsonElement updates;
-        try {
-            // TODO: look for internal Maven URL downloading methods (using proxies, etc.)
-            final OkHttpClient client = new OkHttpClient();
-            Request request = new Request.Builder().url(url).build();
-            String response = client.newCall(request).execute().body().string();
-            // TODO: review JSONP parsing
-            response = response.substring(response.indexOf('{'));
-            response = response.substring(0, response.lastIndexOf(')'));
-            updates = new JsonParser().parse(new JsonReader(new StringReader(response)));
+        // TODO: error reporting, new plugins, etc.
+        final String coordinates;
+        try (ExecutionMetrics.Phase phase = phase("update-center")) {
+            coordinates = getUpdateCenterCoordinates(url);
         } catch (Exception e) {
             throw failure(e, "Unable to get plugin information from update center [%s]", url);
         }
-        // TODO: error reporting, new plugins, etc.
-        final String coordinates;
+        if (coordinates == null) {
+            throw failure("Unable to get plugin coordinates from update center [%s] info", url);
+        }
+        return resolveBaseline(parseArtifact(coordinates));
+    }
+
+    /**
+     * Looks up the current plugin coordinates in an update center, using its index if possible.
+     * The update center is fetched and indexed only once per session.
+     */
+    private String getUpdateCenterCoordinates(final String url) throws IOException {
+        final SessionContext context = SessionContext.of(session);
+        // TODO: look for internal Maven URL downloading methods (using proxies, etc.)
+        final File updateCenter = context.get(UPDATE_CENTER + url, new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                return getUpdateCenterCache(context).get(url);
+            }
+        });
+        final String artifactId = mavenProject.getArtifactId();
         try {
-            coordinates = updates.getAsJsonObject().get("plugins").getAsJsonObject().get(mavenProject.getArtifactId()).getAsJsonObject().get("gav").getAsString();
-        } catch (RuntimeException e) {
-            throw failure(e, "Unable to get plugin coordinates from update center [%s] info", url);
+            final UpdateCenterIndex index = context.get(updateCenter, new Callable<UpdateCenterIndex>() {
+                @Override
+                public UpdateCenterIndex call() throws IOException {
+                    return UpdateCenterIndex.of(updateCenter);
+                }
+            });
+            return index.get(artifactId);
+        } catch (IOException e) {
+            warnf("Unable to use update center index, parsing %s: %s", updateCenter, e.getMessage());
+        }
+        try (Reader reader = Files.newReader(updateCenter, Charsets.UTF_8)) {
+            return UpdateCenterParser.getGav(reader, artifactId);
         }
-        return new ResolvedArtifact(parseArtifact(coordinates));
+    }
+
+    /**
+     * @return The update center cache, located in the local repository.
+     */
+    private UpdateCenterCache getUpdateCenterCache(SessionContext context) {
+        final File directory = new File(localRepository.getBasedir(), ".cache/jenkins-bce/update-center");
+        return new UpdateCenterCache(directory, TimeUnit.MINUTES.toMillis(updateCenterTtl), context.getClient(), getLog());
     }
 
     private ResolvedArtifact getVersionBaseline() throws MojoFailureException {
@@ -298,7 +855,7 @@ public class JenkinsBCEMojo extends AbstractMojo {
         if (version == null || version.isEmpty()) {
             return null;
         }
-        return new ResolvedArtifact(createArtifact(mavenProject.getGroupId(), mavenProject.getArtifactId(), version));
+        return resolveBaseline(createArtifact(mavenProject.getGroupId(), mavenProject.getArtifactId(), version));
     }
 
     private ResolvedArtifact getArtifactBaseline() throws MojoFailureException {
@@ -306,18 +863,98 @@ public class JenkinsBCEMojo extends AbstractMojo {
         if (artifact == null || artifact.isEmpty()) {
             return null;
         }
-        return new ResolvedArtifact(parseArtifact(artifact));
+        return resolveBaseline(parseArtifact(artifact));
+    }
+
+    /**
+     * @return The dependency policy, compiled once per session.
+     */
+    private DependencyPolicy getDependencyPolicy() throws MojoFailureException {
+        return SessionContext.of(session).getDependencyPolicy(dependencySpec);
+    }
+
+    /**
+     * @return The remote cache or {@code null} if none is configured.
+     */
+    private CacheStore getRemoteCache() throws MojoFailureException {
+        if (Strings.isNullOrEmpty(remoteCache)) {
+            return null;
+        }
+        final CacheStore store = CacheStores.of(remoteCache, SessionContext.of(session).getClient());
+        if (store == null) {
+            throw failure("Invalid remote cache [%s]", remoteCache);
+        }
+        return store;
+    }
+
+    /**
+     * Resolves a baseline artifact. If remote snapshots are enabled, there is a remote cache and no dependencies are
+     * compared, the API snapshot of a released baseline is used instead: it is fetched from the remote cache if some
+     * other build has already taken it, or taken and uploaded otherwise. Snapshots are kept in the local repository
+     * too, and their keys include the snapshot format version.
+     */
+    @SuppressWarnings("try")
+    private ResolvedArtifact resolveBaseline(Artifact artifact) throws MojoFailureException {
+        final DependencyPolicy policy = getDependencyPolicy();
+        final CacheStore store = remoteSnapshots ? getRemoteCache() : null;
+        if (store == null || policy != DependencyPolicy.NONE || artifact.isSnapshot()) {
+            return new ResolvedArtifact(artifact, policy);
+        }
+        final String key = String.format("snapshots/v%d/%s/%s/%s.jar", ApiSnapshot.FORMAT, artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+        final File snapshot = new File(localRepository.getBasedir(), ".cache/jenkins-bce/" + key);
+        try {
+            if (!snapshot.isFile() && !store.get(key, snapshot)) {
+                final File archive = new ResolvedArtifact(artifact, policy).getArtifact().getFile();
+                try (ExecutionMetrics.Phase phase = phase("snapshot")) {
+                    java.nio.file.Files.createDirectories(snapshot.getParentFile().toPath());
+                    final File tmp = File.createTempFile("snapshot", ".tmp", snapshot.getParentFile());
+                    try {
+                        ApiSnapshot.write(archive, tmp);
+                        java.nio.file.Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        java.nio.file.Files.deleteIfExists(tmp.toPath());
+                    }
+                }
+                store.put(key, snapshot);
+                infof("API snapshot of baseline %s uploaded to %s", artifact, store);
+            }
+        } catch (IOException e) {
+            warnf("Unable to use the API snapshot of baseline %s from %s: %s", artifact, store, e.getMessage());
+            return new ResolvedArtifact(artifact, policy);
+        }
+        final Artifact resolved = createArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), ApiSnapshot.CLASSIFIER);
+        resolved.setFile(snapshot);
+        resolved.setResolved(true);
+        return new ResolvedArtifact(resolved, ImmutableList.of(resolved));
+    }
+
+    private ResolvedArtifact getSnapshotBaseline() throws MojoFailureException {
+        final String snapshot = getBaselinePayload(SNAPSHOT);
+        if (snapshot == null || snapshot.isEmpty()) {
+            return null;
+        }
+        final Artifact artifact = parseArtifact(snapshot);
+        // The snapshot is self-contained: dependencies are not needed to compare against it.
+        return new ResolvedArtifact(createArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), ApiSnapshot.CLASSIFIER), DependencyPolicy.NONE);
     }
 
-    private Options createOptions(Iterable<File> oldVersion, Iterable<File> newVersion) throws MojoFailureException {
-        final boolean oldOk = checkFiles(oldVersion, "old");
-        final boolean newOk = checkFiles(newVersion, "new");
+    private Options createOptions(ResolvedArtifact oldVersion, ResolvedArtifact newVersion) throws MojoFailureException {
+        final boolean oldOk = checkFiles(oldVersion.getFiles(), "old");
+        final boolean newOk = checkFiles(newVersion.getFiles(), "new");
         if (!oldOk || !newOk) {
             throw failure("There are unreadable files to compare");
         }
+        final Set<File> unchanged = getUnchangedDependencies(oldVersion, newVersion);
+        final List<String> oldClassPath = Lists.newArrayList();
+        final List<String> newClassPath = Lists.newArrayList();
         final Options options = new Options();
-        Iterables.addAll(options.getOldArchives(), oldVersion);
-        Iterables.addAll(options.getNewArchives(), newVersion);
+        split(oldVersion.getFiles(), unchanged, options.getOldArchives(), oldClassPath);
+        split(newVersion.getFiles(), unchanged, options.getNewArchives(), newClassPath);
+        if (!unchanged.isEmpty()) {
+            infof("%d unchanged dependencies are used only as class path", newClassPath.size());
+            options.setOldClassPath(Optional.of(Joiner.on(File.pathSeparatorChar).join(oldClassPath)));
+            options.setNewClassPath(Optional.of(Joiner.on(File.pathSeparatorChar).join(newClassPath)));
+        }
         options.setOutputOnlyModifications(true);
         options.setAccessModifier(AccessModifier.PROTECTED);
         options.setOutputOnlyBinaryIncompatibleModifications(true);
@@ -328,6 +965,44 @@ public class JenkinsBCEMojo extends AbstractMojo {
         return options;
     }
 
+    /**
+     * Finds the dependencies with the same coordinates and contents in both versions. They cannot have binary
+     * incompatible changes of their own, so they are only needed to resolve the types of the compared classes.
+     * The compared artifacts themselves are always compared.
+     *
+     * @return The files of the unchanged dependencies, of both versions.
+     */
+    private Set<File> getUnchangedDependencies(ResolvedArtifact oldVersion, ResolvedArtifact newVersion) throws MojoFailureException {
+        final Set<File> unchanged = Sets.newHashSet();
+        final Map<String, File> oldDependencies = oldVersion.getDependencies();
+        try {
+            for (Map.Entry<String, File> entry : newVersion.getDependencies().entrySet()) {
+                final File oldFile = oldDependencies.get(entry.getKey());
+                final File newFile = entry.getValue();
+                if (oldFile != null && (oldFile.equals(newFile) || ClassInfoCache.getDigest(oldFile).equals(ClassInfoCache.getDigest(newFile)))) {
+                    unchanged.add(oldFile);
+                    unchanged.add(newFile);
+                }
+            }
+        } catch (IOException e) {
+            throw failure(e, "Unable to read dependencies");
+        }
+        return unchanged;
+    }
+
+    /**
+     * Splits the files of a version into archives to compare and class path entries.
+     */
+    private static void split(List<File> files, Set<File> classPathFiles, List<File> archives, List<String> classPath) {
+        for (File f : files) {
+            if (classPathFiles.contains(f)) {
+                classPath.add(f.getAbsolutePath());
+            } else {
+                archives.add(f);
+            }
+        }
+    }
+
     private boolean checkFiles(Iterable<File> files, String collectionName) {
         final List<File> badFiles = Lists.newLinkedList(Iterables.filter(files, new Predicate<File>() {
             @Override
@@ -356,12 +1031,22 @@ public class JenkinsBCEMojo extends AbstractMojo {
          * Resolved files.
          */
         private final List<File> files;
+        /**
+         * Files of the resolved dependencies, indexed by artifact identifier (including the version).
+         */
+        private final Map<String, File> dependencies;
 
         /**
          * Constructor.
          */
         ResolvedArtifact(Artifact artifact) throws MojoFailureException {
-            final DependencyPolicy dependencyPolicy = DependencyPolicy.of(dependencySpec);
+            this(artifact, getDependencyPolicy());
+        }
+
+        /**
+         * Constructor.
+         */
+        ResolvedArtifact(Artifact artifact, DependencyPolicy dependencyPolicy) throws MojoFailureException {
             final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
             request.setArtifact(artifact);
             request.setLocalRepository(localRepository);
@@ -377,14 +1062,46 @@ public class JenkinsBCEMojo extends AbstractMojo {
             if (artifacts.isEmpty()) {
                 throw failure("Could not resolve artifact [%s]", artifact);
             }
-            this.artifact = resolutionResult.getOriginatingArtifact();
+            // Non transitive resolutions resolve the requested artifact without recording it as the originating one
+            this.artifact = MoreObjects.firstNonNull(resolutionResult.getOriginatingArtifact(), artifact);
+            this.files = getFiles(artifacts);
+            this.dependencies = getDependencies(artifacts);
+        }
+
+        /**
+         * Constructor for already resolved artifacts.
+         *
+         * @param artifact  Main artifact, with its file.
+         * @param artifacts Main artifact and its dependencies.
+         */
+        ResolvedArtifact(Artifact artifact, Iterable<Artifact> artifacts) {
+            this.artifact = artifact;
+            this.files = getFiles(artifacts);
+            this.dependencies = getDependencies(artifacts);
+        }
+
+        private ImmutableList<File> getFiles(Iterable<Artifact> artifacts) {
             final ImmutableList.Builder<File> b = ImmutableList.builder();
             for (Artifact a : artifacts) {
                 if (a.isResolved() && a.getFile() != null) {
                     b.add(a.getFile());
                 }
             }
-            this.files = b.build();
+            return b.build();
+        }
+
+        private ImmutableMap<String, File> getDependencies(Iterable<Artifact> artifacts) {
+            final Map<String, File> d = Maps.newHashMap();
+            for (Artifact a : artifacts) {
+                if (a.isResolved() && a.getFile() != null && !isMain(a)) {
+                    d.put(a.getId(), a.getFile());
+                }
+            }
+            return ImmutableMap.copyOf(d);
+        }
+
+        private boolean isMain(Artifact a) {
+            return artifact.getGroupId().equals(a.getGroupId()) && artifact.getArtifactId().equals(a.getArtifactId());
         }
 
         Artifact getArtifact() {
@@ -394,5 +1111,9 @@ public class JenkinsBCEMojo extends AbstractMojo {
         List<File> getFiles() {
             return files;
         }
+
+        Map<String, File> getDependencies() {
+            return dependencies;
+        }
     }
 }
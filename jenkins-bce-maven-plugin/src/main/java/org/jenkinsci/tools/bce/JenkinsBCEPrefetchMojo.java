@@ -0,0 +1,50 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Mojo starting the resolution of the baseline in a background thread early in the build, so that downloading it
+ * overlaps with compilation and tests. A later {@code check} of the same project, with the same configuration of
+ * every input of the resolution (baseline, dependencies, repositories and caches), takes the result from the session,
+ * waiting for it if needed, and a check with another configuration cancels it. A resolution that is never taken
+ * (e.g., the check is skipped) is dropped with the session. Resolution errors are reported by the check.
+ *
+ * @author Andres Rodriguez
+ */
+@Mojo(name = "prefetch", defaultPhase = LifecyclePhase.VALIDATE, threadSafe = true)
+public class JenkinsBCEPrefetchMojo extends JenkinsBCEMojo {
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip() || !isPlugin()) {
+            return;
+        }
+        info("Resolving baseline in the background");
+        prefetchOldVersion();
+    }
+}
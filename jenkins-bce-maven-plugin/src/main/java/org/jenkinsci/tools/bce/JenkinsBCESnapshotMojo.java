@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProjectHelper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Mojo writing the API signature snapshot of the current plugin and attaching it to the project, so that it can
+ * be used as a baseline ({@code snapshot:<i>groupId</i>:<i>artifact</i>:<i>version</i>}) by later versions.
+ *
+ * @author Andres Rodriguez
+ */
+@Mojo(name = "snapshot", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
+public class JenkinsBCESnapshotMojo extends AbstractBCEMojo {
+    /**
+     * Project helper, to attach the snapshot.
+     */
+    @Component
+    private MavenProjectHelper projectHelper;
+    /**
+     * Archive to take the snapshot of.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}.jar", required = true)
+    private File archive;
+    /**
+     * Snapshot file to write.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}-" + ApiSnapshot.CLASSIFIER + ".jar", required = true)
+    private File snapshot;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (mavenProject == null || !isPlugin()) {
+            warn("Not a Jenkins plugin. Skipping");
+            return;
+        }
+        if (!archive.isFile()) {
+            throw failure("Archive %s not found. The snapshot must be taken after packaging", archive);
+        }
+        try {
+            final int n = ApiSnapshot.write(archive, snapshot);
+            infof("API snapshot with %d classes written to %s", n, snapshot);
+        } catch (IOException e) {
+            throw failure(e, "Unable to write API snapshot of %s", archive);
+        }
+        projectHelper.attachArtifact(mavenProject, "jar", ApiSnapshot.CLASSIFIER, snapshot);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Throwables;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Concurrent cache computing the value of each key only once, even if several threads ask for it at the same
+ * time: the first one computes it and the rest wait for the result. Failures are not cached.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ * @author Andres Rodriguez
+ */
+final class Memoizer<K, V> {
+    /**
+     * Values, computed or being computed.
+     */
+    private final ConcurrentMap<K, Future<V>> values;
+
+    /**
+     * Constructor.
+     *
+     * @param values Backing map (e.g., one with soft values).
+     */
+    Memoizer(ConcurrentMap<K, Future<V>> values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns a value, computing it if needed.
+     *
+     * @param key    Value key.
+     * @param loader Loader to use if the value has not been computed yet.
+     * @return The requested value.
+     */
+    V get(K key, Callable<V> loader) throws IOException {
+        Future<V> value = values.get(key);
+        if (value == null) {
+            final FutureTask<V> task = new FutureTask<V>(loader);
+            value = values.putIfAbsent(key, task);
+            if (value == null) {
+                value = task;
+                task.run();
+            }
+        }
+        try {
+            return value.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            // Failures are not cached, so that other callers can try again.
+            values.remove(key, value);
+            final Throwable cause = e.getCause();
+            Throwables.propagateIfInstanceOf(cause, IOException.class);
+            throw Throwables.propagate(cause);
+        }
+    }
+}
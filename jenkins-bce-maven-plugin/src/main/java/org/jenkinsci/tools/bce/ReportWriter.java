@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.gson.stream.JsonWriter;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Writer of machine readable reports of a check: a JSON report listing every binary incompatible class and
+ * member with its change status and verdict, and a JUnit XML report with a test case per class. Both are written
+ * with streaming writers from the entries of the check, which only hold names and verdicts, so the comparison
+ * model is never serialized as a whole.
+ *
+ * @author Andres Rodriguez
+ */
+final class ReportWriter {
+    /**
+     * Checked project identifier.
+     */
+    private final String project;
+    /**
+     * Baseline specification.
+     */
+    private final String baseline;
+    /**
+     * Result of the check.
+     */
+    private final BinaryChanges changes;
+
+    /**
+     * Constructor.
+     *
+     * @param project  Checked project identifier.
+     * @param baseline Baseline specification.
+     * @param changes  Result of the check.
+     */
+    ReportWriter(String project, String baseline, BinaryChanges changes) {
+        this.project = project;
+        this.baseline = baseline;
+        this.changes = changes;
+    }
+
+    /**
+     * Writes the JSON report.
+     */
+    void writeJson(File file) throws IOException {
+        Files.createParentDirs(file);
+        try (Writer writer = Files.newWriter(file, Charsets.UTF_8)) {
+            final JsonWriter json = new JsonWriter(writer);
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("project").value(project);
+            json.name("baseline").value(baseline);
+            json.name("result").value(changes.isEmpty() ? "PASSED" : "FAILED");
+            json.name("classes").beginArray();
+            boolean open = false;
+            for (BinaryChanges.Entry e : changes.getEntries()) {
+                if (e.getKind() == BinaryChanges.Kind.CLASS) {
+                    if (open) {
+                        json.endArray().endObject();
+                    }
+                    json.beginObject();
+                    json.name("name").value(e.getName());
+                    json.name("changeStatus").value(e.getChangeStatus().name());
+                    json.name("verdict").value(e.getVerdict().name());
+                    json.name("members").beginArray();
+                    open = true;
+                } else {
+                    json.beginObject();
+                    json.name("kind").value(e.getKind().name());
+                    json.name("name").value(e.getName());
+                    json.name("changeStatus").value(e.getChangeStatus().name());
+                    json.name("verdict").value(e.getVerdict().name());
+                    json.endObject();
+                }
+            }
+            if (open) {
+                json.endArray().endObject();
+            }
+            json.endArray();
+            // Includes the classes whose verdict was reused from the last incremental check
+            writeNames(json, "acceptedClasses", changes.getAcceptedClasses());
+            writeNames(json, "ignoredClasses", changes.getIgnoredClasses());
+            json.endObject();
+            json.flush();
+        }
+    }
+
+    private static void writeNames(JsonWriter json, String name, Set<String> names) throws IOException {
+        json.name(name).beginArray();
+        for (String n : Sets.newTreeSet(names)) {
+            json.value(n);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Writes the JUnit XML report. Classes with unaccepted changes are failures and classes that are accepted,
+     * ignored or not for external use as a whole are skipped.
+     */
+    void writeJUnit(File file) throws IOException {
+        int tests = 0;
+        int failures = 0;
+        int skipped = 0;
+        for (BinaryChanges.Entry e : changes.getEntries()) {
+            if (e.getKind() == BinaryChanges.Kind.CLASS) {
+                tests++;
+                if (e.getVerdict() == BinaryChanges.Verdict.FAILED) {
+                    failures++;
+                } else if (e.getVerdict() != BinaryChanges.Verdict.PASSED) {
+                    skipped++;
+                }
+            }
+        }
+        Files.createParentDirs(file);
+        try (Writer writer = Files.newWriter(file, Charsets.UTF_8)) {
+            final XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("testsuite");
+            xml.writeAttribute("name", "jenkins-bce." + project);
+            xml.writeAttribute("tests", Integer.toString(tests));
+            xml.writeAttribute("failures", Integer.toString(failures));
+            xml.writeAttribute("errors", "0");
+            xml.writeAttribute("skipped", Integer.toString(skipped));
+            boolean open = false;
+            for (BinaryChanges.Entry e : changes.getEntries()) {
+                if (e.getKind() == BinaryChanges.Kind.CLASS) {
+                    if (open) {
+                        endTestCase(xml);
+                    }
+                    xml.writeStartElement("testcase");
+                    xml.writeAttribute("classname", e.getName());
+                    xml.writeAttribute("name", "binaryCompatibility");
+                    if (e.getVerdict() == BinaryChanges.Verdict.FAILED) {
+                        xml.writeStartElement("failure");
+                        xml.writeAttribute("type", e.getChangeStatus().name());
+                        xml.writeAttribute("message", "Binary incompatible changes against " + baseline);
+                    } else if (e.getVerdict() != BinaryChanges.Verdict.PASSED) {
+                        xml.writeStartElement("skipped");
+                        xml.writeAttribute("message", e.getVerdict().name());
+                    } else {
+                        xml.writeStartElement("system-out");
+                    }
+                    open = true;
+                } else {
+                    xml.writeCharacters(String.format("%s %s %s: %s%n", e.getKind(), e.getName(), e.getChangeStatus(), e.getVerdict()));
+                }
+            }
+            if (open) {
+                endTestCase(xml);
+            }
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void endTestCase(XMLStreamWriter xml) throws XMLStreamException {
+        // Closes the failure, skipped or system-out element and the test case
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.squareup.okhttp.OkHttpClient;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * State shared by every execution of the plugin in the same Maven session (e.g., all the modules of a reactor
+ * build). Contexts are indexed by the execution request, which is shared by the copies of the session made for each
+ * project in parallel builds, and only weakly referenced, so a context lives as long as its session does. The
+ * repository session is not used, as its type changed from Maven 3.0 to 3.1.
+ *
+ * @author Andres Rodriguez
+ */
+final class SessionContext {
+    /**
+     * Contexts of the running sessions, indexed by execution request.
+     */
+    private static final LoadingCache<MavenExecutionRequest, SessionContext> CONTEXTS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<MavenExecutionRequest, SessionContext>() {
+                @Override
+                public SessionContext load(MavenExecutionRequest request) {
+                    return new SessionContext();
+                }
+            });
+
+    /**
+     * HTTP client, shared to reuse its connection pool.
+     */
+    private final OkHttpClient client = new OkHttpClient();
+    /**
+     * Values computed during the session.
+     */
+    private final Memoizer<Object, Object> values = new Memoizer<Object, Object>(Maps.<Object, Future<Object>>newConcurrentMap());
+    /**
+     * Values being computed in the background for a later execution, with their keys, indexed by owner.
+     */
+    private final ConcurrentMap<Object, Map.Entry<Object, Future<?>>> prefetched = Maps.newConcurrentMap();
+    /**
+     * Compiled dependency policies, indexed by specification.
+     */
+    private final ConcurrentMap<String, DependencyPolicy> dependencyPolicies = Maps.newConcurrentMap();
+
+    /**
+     * Returns the context of the provided session, creating it if needed.
+     *
+     * @param session Maven session. If {@code null} a new, unshared, context is returned.
+     */
+    static SessionContext of(MavenSession session) {
+        if (session == null || session.getRequest() == null) {
+            return new SessionContext();
+        }
+        return CONTEXTS.getUnchecked(session.getRequest());
+    }
+
+    /**
+     * Constructor.
+     */
+    private SessionContext() {
+    }
+
+    /**
+     * @return The shared HTTP client.
+     */
+    OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Returns the dependency policy of a specification, compiling it only once per session.
+     *
+     * @param spec Dependency specification.
+     * @return The compiled policy.
+     */
+    DependencyPolicy getDependencyPolicy(@Nullable String spec) throws MojoFailureException {
+        final String key = Strings.nullToEmpty(spec).trim();
+        final DependencyPolicy policy = dependencyPolicies.get(key);
+        if (policy != null) {
+            return policy;
+        }
+        // Concurrent executions may compile the same specification, but only the first policy is kept.
+        final DependencyPolicy compiled = DependencyPolicy.of(key);
+        final DependencyPolicy current = dependencyPolicies.putIfAbsent(key, compiled);
+        return current != null ? current : compiled;
+    }
+
+    /**
+     * Returns a value computed during the session. The loader is called at most once for each key, even if
+     * several executions ask for it concurrently.
+     *
+     * @param key    Value key.
+     * @param loader Loader to use if the value has not been computed yet.
+     * @return The requested value.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(Object key, Callable<T> loader) throws IOException {
+        return (T) values.get(key, (Callable<Object>) loader);
+    }
+
+    /**
+     * Starts computing a value in a background thread, so that a later execution can take it. Each owner (e.g., a
+     * project) has at most one value being computed: nothing is done if it is already computing the value of the
+     * same key, and the computation of any other key is cancelled.
+     *
+     * @param owner  Owner of the value.
+     * @param key    Value key.
+     * @param loader Loader computing the value.
+     * @param name   Name of the background thread.
+     */
+    <T> void prefetch(Object owner, Object key, Callable<T> loader, String name) {
+        final FutureTask<T> task = new FutureTask<T>(loader);
+        final Map.Entry<Object, Future<?>> entry = Maps.<Object, Future<?>>immutableEntry(key, task);
+        final Map.Entry<Object, Future<?>> current = prefetched.putIfAbsent(owner, entry);
+        if (current != null) {
+            if (current.getKey().equals(key) || !prefetched.replace(owner, current, entry)) {
+                return;
+            }
+            current.getValue().cancel(true);
+        }
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Takes the value computed in the background for an owner. If it was computed for another key, it is cancelled,
+     * as it will never be used.
+     *
+     * @param owner Owner of the value.
+     * @param key   Value key.
+     * @return The value being computed or {@code null} if no value was prefetched for the owner and key.
+     */
+    @SuppressWarnings("unchecked")
+    <T> Future<T> takePrefetched(Object owner, Object key) {
+        final Map.Entry<Object, Future<?>> entry = prefetched.remove(owner);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.getKey().equals(key)) {
+            entry.getValue().cancel(true);
+            return null;
+        }
+        return (Future<T>) entry.getValue();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Local on-disk cache of update center files. Each URL is stored together with the validators
+ * ({@code ETag} and {@code Last-Modified}) returned by the server, so that once the entry is older
+ * than the configured TTL it is revalidated with a conditional request instead of downloaded again.
+ *
+ * @author Andres Rodriguez
+ */
+final class UpdateCenterCache {
+    /**
+     * Metadata: source URL.
+     */
+    private static final String URL = "url";
+    /**
+     * Metadata: entity tag.
+     */
+    private static final String ETAG = "etag";
+    /**
+     * Metadata: last modification date, as sent by the server.
+     */
+    private static final String LAST_MODIFIED = "lastModified";
+    /**
+     * Metadata: last time the entry was checked against the server.
+     */
+    private static final String CHECKED = "checked";
+
+    /**
+     * Cache directory.
+     */
+    private final File directory;
+    /**
+     * Time to live of the cached entries, in milliseconds.
+     */
+    private final long ttl;
+    /**
+     * HTTP client to use.
+     */
+    private final OkHttpClient client;
+    /**
+     * Log to use.
+     */
+    private final Log log;
+
+    /**
+     * Constructor.
+     *
+     * @param directory Cache directory.
+     * @param ttl       Time to live of the cached entries, in milliseconds.
+     * @param client    HTTP client to use.
+     * @param log       Log to use.
+     */
+    UpdateCenterCache(File directory, long ttl, OkHttpClient client, Log log) {
+        this.directory = directory;
+        this.ttl = ttl;
+        this.client = client;
+        this.log = log;
+    }
+
+    /**
+     * Returns the local copy of the provided URL, downloading or revalidating it if needed.
+     *
+     * @param url URL to fetch.
+     * @return The cached file.
+     */
+    File get(String url) throws IOException {
+        final String key = Hashing.sha1().hashString(url, Charsets.UTF_8).toString();
+        final File file = new File(directory, key + ".json");
+        final File metadataFile = new File(directory, key + ".properties");
+        final Properties metadata = load(metadataFile);
+        final boolean cached = file.isFile() && url.equals(metadata.getProperty(URL));
+        final long now = System.currentTimeMillis();
+        if (cached && now - getChecked(metadata) < ttl) {
+            log.debug(String.format("Using cached update center [%s]", url));
+            return file;
+        }
+        final Request.Builder request = new Request.Builder().url(url);
+        if (cached) {
+            final String etag = metadata.getProperty(ETAG);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            final String lastModified = metadata.getProperty(LAST_MODIFIED);
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+        }
+        final Response response;
+        try {
+            response = client.newCall(request.build()).execute();
+        } catch (IOException e) {
+            if (cached) {
+                log.warn(String.format("Unable to revalidate update center [%s], using cached copy: %s", url, e.getMessage()));
+                return file;
+            }
+            throw e;
+        }
+        try {
+            if (cached && response.code() == 304) {
+                log.debug(String.format("Cached update center [%s] is up to date", url));
+            } else if (response.isSuccessful()) {
+                log.info(String.format("Downloading update center [%s]", url));
+                download(response, file);
+                metadata.clear();
+                metadata.setProperty(URL, url);
+                setHeader(metadata, ETAG, response.header("ETag"));
+                setHeader(metadata, LAST_MODIFIED, response.header("Last-Modified"));
+            } else if (cached) {
+                // Not marked as checked, so that the next build tries again
+                log.warn(String.format("Unexpected response %d revalidating update center [%s], using cached copy", response.code(), url));
+                return file;
+            } else {
+                throw new IOException(String.format("Unexpected response %d fetching [%s]", response.code(), url));
+            }
+        } finally {
+            response.body().close();
+        }
+        metadata.setProperty(CHECKED, Long.toString(now));
+        store(metadata, metadataFile);
+        return file;
+    }
+
+    /**
+     * Writes the response body to a temporary file, which is then moved atomically to its final location.
+     */
+    private void download(Response response, File file) throws IOException {
+        final File tmp = createTempFile();
+        try {
+            try (InputStream is = response.body().byteStream(); OutputStream os = new FileOutputStream(tmp)) {
+                ByteStreams.copy(is, os);
+            }
+            move(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private File createTempFile() throws IOException {
+        Files.createDirectories(directory.toPath());
+        return File.createTempFile("update-center", ".tmp", directory);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void setHeader(Properties metadata, String key, String value) {
+        if (value != null) {
+            metadata.setProperty(key, value);
+        }
+    }
+
+    private static long getChecked(Properties metadata) {
+        try {
+            return Long.parseLong(metadata.getProperty(CHECKED, "0"));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static Properties load(File file) throws IOException {
+        final Properties properties = new Properties();
+        if (file.isFile()) {
+            try (InputStream is = new FileInputStream(file)) {
+                properties.load(is);
+            }
+        }
+        return properties;
+    }
+
+    private void store(Properties metadata, File file) throws IOException {
+        final File tmp = createTempFile();
+        try {
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                metadata.store(os, null);
+            }
+            move(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+}
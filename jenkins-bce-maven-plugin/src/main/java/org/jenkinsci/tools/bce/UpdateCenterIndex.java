@@ -0,0 +1,221 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.common.primitives.UnsignedBytes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Compact index of an update center file, mapping plugin artifact ids to their coordinates.
+ * <p>
+ * The index is stored next to the update center file and memory mapped, so lookups are a binary search
+ * that does not need to parse any JSON. Lookups only use absolute reads of the buffer, so an index can be shared
+ * between threads. Its layout is:
+ * <ul>
+ * <li>Header: magic, format version, length and last modification time of the source file, number of entries.</li>
+ * <li>Offsets table: the file offset of each entry, sorted by key.</li>
+ * <li>Entries: the UTF-8 artifact id and coordinates, each of them preceded by its length.</li>
+ * </ul>
+ * If the source file changes the index is rebuilt in a temporary file and atomically moved into place, so
+ * that concurrent builds always see a complete index.
+ *
+ * @author Andres Rodriguez
+ */
+final class UpdateCenterIndex {
+    private static final int MAGIC = 0x42434549;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final String EXTENSION = ".idx";
+    private static final Comparator<byte[]> ORDER = UnsignedBytes.lexicographicalComparator();
+
+    /**
+     * Mapped index.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Number of entries.
+     */
+    private final int size;
+
+    /**
+     * Opens the index of an update center file, building it if it does not exist or is out of date.
+     *
+     * @param source Update center file.
+     * @return The index.
+     */
+    static UpdateCenterIndex of(File source) throws IOException {
+        final String name = source.getName();
+        final int dot = name.lastIndexOf('.');
+        final File file = new File(source.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + EXTENSION);
+        UpdateCenterIndex index = open(file, source);
+        if (index == null) {
+            build(source, file);
+            index = open(file, source);
+            if (index == null) {
+                throw new IOException("Unable to open update center index " + file);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Opens an existing index.
+     *
+     * @return The index or {@code null} if it does not exist or does not match the source file.
+     */
+    private static UpdateCenterIndex open(File file, File source) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        final MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != source.length() || buffer.getLong(16) != source.lastModified()) {
+            return null;
+        }
+        return new UpdateCenterIndex(buffer, buffer.getInt(24));
+    }
+
+    /**
+     * Builds the index of an update center file.
+     */
+    private static void build(File source, File file) throws IOException {
+        final SortedMap<byte[], byte[]> entries = Maps.newTreeMap(ORDER);
+        try (Reader reader = Files.newReader(source, Charsets.UTF_8)) {
+            for (Map.Entry<String, String> e : UpdateCenterParser.getGavs(reader).entrySet()) {
+                entries.put(e.getKey().getBytes(Charsets.UTF_8), e.getValue().getBytes(Charsets.UTF_8));
+            }
+        }
+        final File tmp = File.createTempFile("update-center", ".tmp", file.getParentFile());
+        try {
+            try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                os.writeInt(MAGIC);
+                os.writeInt(VERSION);
+                os.writeLong(source.length());
+                os.writeLong(source.lastModified());
+                os.writeInt(entries.size());
+                int offset = HEADER_SIZE + 4 * entries.size();
+                for (Map.Entry<byte[], byte[]> e : entries.entrySet()) {
+                    os.writeInt(offset);
+                    offset += 4 + e.getKey().length + e.getValue().length;
+                }
+                for (Map.Entry<byte[], byte[]> e : entries.entrySet()) {
+                    os.writeShort(e.getKey().length);
+                    os.write(e.getKey());
+                    os.writeShort(e.getValue().length);
+                    os.write(e.getValue());
+                }
+            }
+            java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            java.nio.file.Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    private UpdateCenterIndex(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * @return The number of plugins in the index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the coordinates of a plugin.
+     *
+     * @param artifactId Plugin to look for.
+     * @return The plugin coordinates ({@code groupId:artifactId:version}) or {@code null} if not found.
+     */
+    String get(String artifactId) {
+        final byte[] key = artifactId.getBytes(Charsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int offset = buffer.getInt(HEADER_SIZE + 4 * mid);
+            final int cmp = compare(offset, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                final int keyLength = buffer.getShort(offset) & 0xFFFF;
+                return read(offset + 2 + keyLength);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares the key of the entry at the provided offset with the one provided.
+     */
+    private int compare(int offset, byte[] key) {
+        final int length = buffer.getShort(offset) & 0xFFFF;
+        final int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            final int cmp = UnsignedBytes.compare(buffer.get(offset + 2 + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     */
+    private String read(int offset) {
+        final byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, Charsets.UTF_8);
+    }
+}
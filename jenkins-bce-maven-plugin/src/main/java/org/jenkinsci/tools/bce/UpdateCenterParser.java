@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.Maps;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/**
+ * Streaming parser of update center files (JSON or JSONP). Only the information needed to
+ * locate the baseline is extracted, everything else is skipped without being materialized.
+ *
+ * @author Andres Rodriguez
+ */
+final class UpdateCenterParser {
+    private static final String PLUGINS = "plugins";
+    private static final String GAV = "gav";
+
+    /**
+     * Not instantiable.
+     */
+    private UpdateCenterParser() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Looks for the coordinates of a plugin. Parsing stops as soon as they are found.
+     *
+     * @param reader     Update center contents.
+     * @param artifactId Plugin to look for.
+     * @return The plugin coordinates ({@code groupId:artifactId:version}) or {@code null} if not found.
+     */
+    static String getGav(Reader reader, String artifactId) throws IOException {
+        final JsonReader json = open(reader);
+        json.beginObject();
+        while (json.hasNext()) {
+            if (PLUGINS.equals(json.nextName())) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (artifactId.equals(json.nextName())) {
+                        return getGav(json);
+                    }
+                    json.skipValue();
+                }
+                return null;
+            }
+            json.skipValue();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the coordinates of every plugin in the update center.
+     *
+     * @param reader Update center contents.
+     * @return The plugin coordinates ({@code groupId:artifactId:version}) indexed by artifact id.
+     */
+    static Map<String, String> getGavs(Reader reader) throws IOException {
+        final Map<String, String> gavs = Maps.newHashMap();
+        final JsonReader json = open(reader);
+        json.beginObject();
+        while (json.hasNext()) {
+            if (PLUGINS.equals(json.nextName())) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    final String artifactId = json.nextName();
+                    final String gav = getGav(json);
+                    if (gav != null) {
+                        gavs.put(artifactId, gav);
+                    }
+                }
+                break;
+            }
+            json.skipValue();
+        }
+        return gavs;
+    }
+
+    /**
+     * Reads the coordinates of the plugin entry the reader is positioned at.
+     */
+    private static String getGav(JsonReader json) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_OBJECT) {
+            json.skipValue();
+            return null;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            if (GAV.equals(json.nextName()) && json.peek() == JsonToken.STRING) {
+                final String gav = json.nextString();
+                while (json.hasNext()) {
+                    json.skipValue();
+                }
+                json.endObject();
+                return gav;
+            }
+            json.skipValue();
+        }
+        json.endObject();
+        return null;
+    }
+
+    /**
+     * Creates a JSON reader positioned at the start of the update center object, skipping the JSONP prefix if any.
+     */
+    private static JsonReader open(Reader reader) throws IOException {
+        final BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        while (true) {
+            buffered.mark(1);
+            final int c = buffered.read();
+            if (c < 0) {
+                throw new EOFException("No JSON object found in update center");
+            }
+            if (c == '{') {
+                buffered.reset();
+                break;
+            }
+        }
+        final JsonReader json = new JsonReader(buffered);
+        // The JSONP suffix is never reached, but be tolerant with the rest of the contents.
+        json.setLenient(true);
+        return json;
+    }
+}
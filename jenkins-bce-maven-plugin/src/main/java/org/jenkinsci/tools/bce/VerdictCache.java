@@ -0,0 +1,374 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.apache.maven.plugin.logging.Log;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of check verdicts, indexed by a fingerprint of every input of the check (archives, baseline,
+ * configuration, plugin version). An entry records the verdict and the files reported by the check, so that a check
+ * with the same inputs can be replayed instead of compared again. Each entry is a directory named after its
+ * fingerprint, written under a temporary name and renamed into place when complete, so entries are never seen
+ * partially written. Entries are immutable: an existing entry is never overwritten. The least recently used entries
+ * are evicted once there are too many of them, and entries are evicted after a while anyway.
+ * Entries can also be shared through a remote store: local misses are looked up there and new entries are uploaded,
+ * with the verdict file last. Remote failures are logged and never fail the check.
+ *
+ * @author Andres Rodriguez
+ */
+final class VerdictCache {
+    private static final String FAILED = "failed";
+    private static final String ACCEPTED = "accepted";
+    private static final String IGNORED = "ignored";
+    /**
+     * Files of an entry.
+     */
+    private static final String VERDICT = "verdict.json";
+    private static final String TRANSCRIPT = "transcript.txt";
+    private static final String REPORT = "report.json";
+    private static final String JUNIT_REPORT = "junit.xml";
+    /**
+     * Report files of an entry.
+     */
+    private static final String[] REPORTS = {TRANSCRIPT, REPORT, JUNIT_REPORT};
+    /**
+     * Key prefix of the entries in the remote store.
+     */
+    private static final String REMOTE_PREFIX = "verdicts/";
+    /**
+     * Maximum number of entries kept.
+     */
+    private static final int MAX_ENTRIES = 500;
+    /**
+     * Maximum time an entry is kept since it was last used, in milliseconds.
+     */
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+    /**
+     * Orders files from the most to the least recently modified.
+     */
+    private static final Comparator<File> MOST_RECENT_FIRST = new Comparator<File>() {
+        @Override
+        public int compare(File left, File right) {
+            return Longs.compare(right.lastModified(), left.lastModified());
+        }
+    };
+
+    /**
+     * Cache directory.
+     */
+    private final File directory;
+    /**
+     * Remote store, if any.
+     */
+    private final CacheStore remote;
+    /**
+     * Log to report remote failures to.
+     */
+    private final Log log;
+
+    /**
+     * Constructor.
+     *
+     * @param directory Cache directory.
+     * @param remote    Remote store to share entries through, if any.
+     * @param log       Log to report remote failures to.
+     */
+    VerdictCache(File directory, @Nullable CacheStore remote, Log log) {
+        this.directory = directory;
+        this.remote = remote;
+        this.log = log;
+    }
+
+    /**
+     * Returns a cached verdict.
+     *
+     * @param fingerprint Inputs fingerprint.
+     * @return The cached verdict or {@code null} if there is no usable entry.
+     */
+    Verdict get(String fingerprint) {
+        final File entry = new File(directory, fingerprint);
+        final File file = new File(entry, VERDICT);
+        if (!file.isFile() && !fetch(fingerprint, entry)) {
+            return null;
+        }
+        boolean failed = false;
+        boolean accepted = false;
+        boolean ignored = false;
+        try (Reader reader = com.google.common.io.Files.newReader(file, Charsets.UTF_8)) {
+            final JsonReader json = new JsonReader(reader);
+            json.beginObject();
+            while (json.hasNext()) {
+                final String name = json.nextName();
+                if (FAILED.equals(name)) {
+                    failed = json.nextBoolean();
+                } else if (ACCEPTED.equals(name)) {
+                    accepted = json.nextBoolean();
+                } else if (IGNORED.equals(name)) {
+                    ignored = json.nextBoolean();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or corrupted entry, check again
+            return null;
+        }
+        // Recently used entries are evicted last
+        entry.setLastModified(System.currentTimeMillis());
+        return new Verdict(entry, failed, accepted, ignored);
+    }
+
+    /**
+     * Stores a verdict, unless there is already an entry for the same inputs.
+     *
+     * @param fingerprint Inputs fingerprint.
+     * @param changes     Result of the check.
+     * @param transcript  Text report, if any.
+     * @param report      JSON report, if any.
+     * @param junitReport JUnit XML report, if any.
+     */
+    void put(String fingerprint, BinaryChanges changes, @Nullable File transcript, @Nullable File report,
+             @Nullable File junitReport) throws IOException {
+        final File entry = new File(directory, fingerprint);
+        if (entry.exists()) {
+            return;
+        }
+        Files.createDirectories(directory.toPath());
+        final File tmp = createTempDirectory();
+        try {
+            copy(transcript, new File(tmp, TRANSCRIPT));
+            copy(report, new File(tmp, REPORT));
+            copy(junitReport, new File(tmp, JUNIT_REPORT));
+            try (Writer writer = com.google.common.io.Files.newWriter(new File(tmp, VERDICT), Charsets.UTF_8)) {
+                final JsonWriter json = new JsonWriter(writer);
+                json.beginObject();
+                json.name(FAILED).value(!changes.isEmpty());
+                json.name(ACCEPTED).value(changes.isAccepted());
+                json.name(IGNORED).value(changes.isIgnored());
+                json.endObject();
+                json.flush();
+            }
+            if (!moveEntry(tmp, entry)) {
+                return;
+            }
+        } finally {
+            delete(tmp);
+        }
+        upload(fingerprint, entry);
+        evict();
+    }
+
+    private File createTempDirectory() throws IOException {
+        return Files.createTempDirectory(directory.toPath(), "verdict").toFile();
+    }
+
+    /**
+     * Moves a complete entry into place.
+     *
+     * @return Whether the entry has been moved, or there was already one.
+     */
+    private static boolean moveEntry(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Stored concurrently by another build with the same inputs
+            return false;
+        }
+    }
+
+    private static void copy(@Nullable File source, File target) throws IOException {
+        if (source != null && source.isFile()) {
+            Files.copy(source.toPath(), target.toPath());
+        }
+    }
+
+    /**
+     * Evicts the entries not used for too long and the least recently used ones beyond the maximum number of
+     * entries. Entries are renamed before being deleted, so that they are never seen partially deleted.
+     */
+    private void evict() {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final List<File> entries = Lists.newArrayList(files);
+        Collections.sort(entries, MOST_RECENT_FIRST);
+        final long oldest = System.currentTimeMillis() - MAX_AGE;
+        for (int i = 0; i < entries.size(); i++) {
+            final File entry = entries.get(i);
+            if (i >= MAX_ENTRIES || entry.lastModified() < oldest) {
+                final File evicted = new File(directory, entry.getName() + ".evicted");
+                if (entry.renameTo(evicted)) {
+                    delete(evicted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a file or an entry directory, if it exists.
+     */
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Fetches an entry from the remote store, if any.
+     *
+     * @return Whether the entry has been fetched.
+     */
+    private boolean fetch(String fingerprint, File entry) {
+        if (remote == null) {
+            return false;
+        }
+        File tmp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            tmp = createTempDirectory();
+            final String prefix = REMOTE_PREFIX + fingerprint + '/';
+            // Look for the verdict first, as most lookups are misses
+            if (!remote.get(prefix + VERDICT, new File(tmp, VERDICT))) {
+                return false;
+            }
+            for (String name : REPORTS) {
+                remote.get(prefix + name, new File(tmp, name));
+            }
+            moveEntry(tmp, entry);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("Unable to fetch verdict %s from %s: %s", fingerprint, remote, e));
+            return false;
+        } finally {
+            if (tmp != null) {
+                delete(tmp);
+            }
+        }
+    }
+
+    /**
+     * Uploads an entry to the remote store, if any. The verdict is uploaded last.
+     */
+    private void upload(String fingerprint, File entry) {
+        if (remote == null) {
+            return;
+        }
+        try {
+            final String prefix = REMOTE_PREFIX + fingerprint + '/';
+            for (String name : REPORTS) {
+                final File file = new File(entry, name);
+                if (file.isFile()) {
+                    remote.put(prefix + name, file);
+                }
+            }
+            remote.put(prefix + VERDICT, new File(entry, VERDICT));
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("Unable to upload verdict %s to %s: %s", fingerprint, remote, e));
+        }
+    }
+
+    /**
+     * Cached verdict.
+     */
+    static final class Verdict {
+        private final File entry;
+        private final boolean failed;
+        private final boolean accepted;
+        private final boolean ignored;
+
+        private Verdict(File entry, boolean failed, boolean accepted, boolean ignored) {
+            this.entry = entry;
+            this.failed = failed;
+            this.accepted = accepted;
+            this.ignored = ignored;
+        }
+
+        /**
+         * @return Whether the check failed.
+         */
+        boolean isFailed() {
+            return failed;
+        }
+
+        boolean isAccepted() {
+            return accepted;
+        }
+
+        boolean isIgnored() {
+            return ignored;
+        }
+
+        /**
+         * @return The cached text report or {@code null} if there is none.
+         */
+        File getTranscript() {
+            return getCached(TRANSCRIPT);
+        }
+
+        /**
+         * @return The cached JSON report or {@code null} if there is none.
+         */
+        File getReport() {
+            return getCached(REPORT);
+        }
+
+        /**
+         * @return The cached JUnit XML report or {@code null} if there is none.
+         */
+        File getJUnitReport() {
+            return getCached(JUNIT_REPORT);
+        }
+
+        private File getCached(String name) {
+            final File file = new File(entry, name);
+            return file.isFile() ? file : null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ArtifactMatcher}.
+ *
+ * @author Andres Rodriguez
+ */
+public class ArtifactMatcherTest {
+    static Artifact artifact(String groupId, String artifactId, String version) {
+        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), Artifact.SCOPE_COMPILE,
+                "jar", null, new DefaultArtifactHandler("jar"));
+    }
+
+    static Artifact artifact(String groupId, String artifactId) {
+        return artifact(groupId, artifactId, "1.0");
+    }
+
+    @Test
+    public void exactPatterns() {
+        final ArtifactMatcher matcher = ArtifactMatcher.builder()
+                .group("org.acme")
+                .artifact("com.example", "lib")
+                .build();
+        assertTrue(matcher.apply(artifact("org.acme", "any")));
+        assertFalse(matcher.apply(artifact("org.acme.sub", "any")));
+        assertFalse(matcher.apply(artifact("org", "acme")));
+        assertTrue(matcher.apply(artifact("com.example", "lib")));
+        assertFalse(matcher.apply(artifact("com.example", "other")));
+        assertFalse(matcher.apply(null));
+    }
+
+    @Test
+    public void groupPrefixes() {
+        final ArtifactMatcher matcher = ArtifactMatcher.builder()
+                .group("org.jenkins-ci.*")
+                .artifact("com.example.*", "lib")
+                .build();
+        assertTrue(matcher.apply(artifact("org.jenkins-ci", "core")));
+        assertTrue(matcher.apply(artifact("org.jenkins-ci.plugins", "credentials")));
+        assertTrue(matcher.apply(artifact("org.jenkins-ci.plugins.workflow", "workflow-api")));
+        assertFalse(matcher.apply(artifact("org.jenkins-cix", "core")));
+        assertFalse(matcher.apply(artifact("org", "core")));
+        assertTrue(matcher.apply(artifact("com.example", "lib")));
+        assertTrue(matcher.apply(artifact("com.example.sub", "lib")));
+        assertFalse(matcher.apply(artifact("com.example.sub", "other")));
+    }
+
+    @Test
+    public void anyGroup() {
+        final ArtifactMatcher matcher = ArtifactMatcher.builder().group("*").build();
+        assertTrue(matcher.apply(artifact("org.acme", "any")));
+        assertTrue(matcher.apply(artifact("x", "y")));
+    }
+
+    @Test
+    public void globs() {
+        final ArtifactMatcher matcher = ArtifactMatcher.builder()
+                .group("org.*.plugins")
+                .artifact("com.example", "lib-?")
+                .artifact("net.*", "*-api")
+                .build();
+        assertTrue(matcher.apply(artifact("org.jenkins-ci.plugins", "any")));
+        assertFalse(matcher.apply(artifact("org.plugins", "any")));
+        assertTrue(matcher.apply(artifact("com.example", "lib-1")));
+        assertFalse(matcher.apply(artifact("com.example", "lib-10")));
+        assertFalse(matcher.apply(artifact("com.example", "lib-")));
+        assertTrue(matcher.apply(artifact("net.acme", "core-api")));
+        assertTrue(matcher.apply(artifact("net", "core-api")));
+        assertFalse(matcher.apply(artifact("net.acme", "core-impl")));
+    }
+
+    @Test
+    public void versionRanges() throws Exception {
+        final ArtifactMatcher matcher = ArtifactMatcher.builder()
+                .artifact("org.acme", "lib", VersionRange.createFromVersionSpec("[1.0,2.0)"))
+                .artifact("org.acme.*", "api", VersionRange.createFromVersionSpec("[3.0]"))
+                .build();
+        assertTrue(matcher.apply(artifact("org.acme", "lib", "1.0")));
+        assertTrue(matcher.apply(artifact("org.acme", "lib", "1.5")));
+        assertFalse(matcher.apply(artifact("org.acme", "lib", "2.0")));
+        assertFalse(matcher.apply(artifact("org.acme", "lib", "0.9")));
+        assertTrue(matcher.apply(artifact("org.acme", "api", "3.0")));
+        assertTrue(matcher.apply(artifact("org.acme.sub", "api", "3.0")));
+        assertFalse(matcher.apply(artifact("org.acme.sub", "api", "3.1")));
+    }
+}
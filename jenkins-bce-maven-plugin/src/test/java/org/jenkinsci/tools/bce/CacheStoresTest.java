@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.squareup.okhttp.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CacheStores}.
+ *
+ * @author Andres Rodriguez
+ */
+public class CacheStoresTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StoreServer server;
+    private CacheStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StoreServer();
+        store = server.createStore();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void specifications() {
+        final OkHttpClient client = new OkHttpClient();
+        assertNull(CacheStores.of(null, client));
+        assertNull(CacheStores.of("", client));
+        assertNull(CacheStores.of("file:", client));
+        assertNull(CacheStores.of("ftp://example.com/cache", client));
+        assertNotNull(CacheStores.of("file:/tmp/cache", client));
+        assertEquals("https://example.com/cache/", CacheStores.of(" https://example.com/cache ", client).toString());
+    }
+
+    @Test
+    public void registeredFactory() {
+        assertEquals("test:cache", CacheStores.of("test:cache", new OkHttpClient()).toString());
+    }
+
+    @Test
+    public void putAndGet() throws IOException {
+        final File source = folder.newFile();
+        Files.write("entry", source, Charsets.UTF_8);
+        store.put("verdicts/fp/verdict.json", source);
+        assertArrayEquals("entry".getBytes(Charsets.UTF_8), server.getEntries().get("verdicts/fp/verdict.json"));
+        final File target = new File(folder.getRoot(), "fetched/verdict.json");
+        assertTrue(store.get("verdicts/fp/verdict.json", target));
+        assertEquals("entry", Files.toString(target, Charsets.UTF_8));
+        assertEquals(ImmutableList.of("PUT verdicts/fp/verdict.json", "GET verdicts/fp/verdict.json"), server.takeRequests());
+    }
+
+    @Test
+    public void fileStoreKeepsEntries() throws IOException {
+        final File directory = folder.newFolder("store");
+        final CacheStore fileStore = CacheStores.of("file:" + directory, new OkHttpClient());
+        final File source = folder.newFile();
+        Files.write("first", source, Charsets.UTF_8);
+        fileStore.put("verdicts/fp/verdict.json", source);
+        Files.write("second", source, Charsets.UTF_8);
+        fileStore.put("verdicts/fp/verdict.json", source);
+        final File entry = new File(directory, "verdicts/fp/verdict.json");
+        assertEquals("first", Files.toString(entry, Charsets.UTF_8));
+        assertArrayEquals(new String[]{"verdict.json"}, entry.getParentFile().list());
+        final File target = new File(folder.getRoot(), "fetched/verdict.json");
+        assertTrue(fileStore.get("verdicts/fp/verdict.json", target));
+        assertEquals("first", Files.toString(target, Charsets.UTF_8));
+        assertFalse(fileStore.get("verdicts/other/verdict.json", target));
+    }
+
+    @Test
+    public void getMissing() throws IOException {
+        final File target = new File(folder.getRoot(), "missing.json");
+        assertFalse(store.get("verdicts/fp/verdict.json", target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void getServerError() throws IOException {
+        server.setStatus(503);
+        final File target = new File(folder.getRoot(), "failed.json");
+        try {
+            store.get("verdicts/fp/verdict.json", target);
+            fail("Server errors must not be taken as misses");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void putServerError() throws IOException {
+        server.setStatus(500);
+        final File source = folder.newFile();
+        try {
+            store.put("verdicts/fp/verdict.json", source);
+            fail("Server errors must be reported");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertTrue(server.getEntries().isEmpty());
+    }
+
+    /**
+     * Factory registered as a service for the tests.
+     */
+    public static final class TestFactory implements CacheStore.Factory {
+        @Override
+        public CacheStore create(final String spec) {
+            if (!spec.startsWith("test:")) {
+                return null;
+            }
+            return new CacheStore() {
+                @Override
+                public boolean get(String key, File target) {
+                    return false;
+                }
+
+                @Override
+                public void put(String key, File source) {
+                }
+
+                @Override
+                public String toString() {
+                    return spec;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import japicmp.config.Options;
+import japicmp.model.AccessModifier;
+import japicmp.model.JApiClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static japicmp.cli.JApiCli.ClassPathMode.TWO_SEPARATE_CLASSPATHS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ComparisonEngine}.
+ *
+ * @author Andres Rodriguez
+ */
+public class ComparisonEngineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Options createOptions(File oldArchive, File newArchive) {
+        final Options options = new Options();
+        options.getOldArchives().add(oldArchive);
+        options.getNewArchives().add(newArchive);
+        options.setOutputOnlyModifications(true);
+        options.setAccessModifier(AccessModifier.PROTECTED);
+        options.setOutputOnlyBinaryIncompatibleModifications(true);
+        options.setIncludeSynthetic(true);
+        options.setIgnoreMissingClasses(true);
+        options.setClassPathMode(TWO_SEPARATE_CLASSPATHS);
+        return options;
+    }
+
+    private BinaryChanges compare(String engine, Options options) throws IOException {
+        return BinaryChanges.of(ComparisonEngine.of(engine, folder.newFolder(), 1).compare(options, null));
+    }
+
+    /**
+     * A method removed from a package private superclass is removed from its public subclasses too, so the
+     * signature engine compares them, and both engines agree on the result.
+     */
+    @Test
+    public void methodRemovedFromPackagePrivateSuperclass() throws IOException {
+        final File oldArchive = new TestArchive()
+                .add("p.Base", null, false, "public int foo() { return 1; }", "public int bar() { return 2; }")
+                .add("p.Impl", "p.Base", true)
+                .write(folder.newFile("old.jar"), "p.Base", "p.Impl");
+        final File newArchive = new TestArchive()
+                .add("p.Base", null, false, "public int bar() { return 2; }")
+                .add("p.Impl", "p.Base", true)
+                .write(folder.newFile("new.jar"), "p.Base", "p.Impl");
+        final Options options = createOptions(oldArchive, newArchive);
+        final ComparisonEngine signature = ComparisonEngine.of(ComparisonEngine.SIGNATURE, folder.newFolder(), 1);
+        assertEquals(ImmutableSet.of("p.Base", "p.Impl"), signature.select(options, null));
+        assertEquals(getChangedClasses(compare(ComparisonEngine.JAPICMP, options)),
+                getChangedClasses(compare(ComparisonEngine.SIGNATURE, options)));
+    }
+
+    /**
+     * Methods removed from public classes are reported by both engines.
+     */
+    @Test
+    public void methodRemovedFromPublicClass() throws IOException {
+        final File oldArchive = new TestArchive()
+                .add("p.Base", null, true, "public int foo() { return 1; }", "public int bar() { return 2; }")
+                .add("p.Impl", "p.Base", true)
+                .write(folder.newFile("old.jar"), "p.Base", "p.Impl");
+        final File newArchive = new TestArchive()
+                .add("p.Base", null, true, "public int bar() { return 2; }")
+                .add("p.Impl", "p.Base", true)
+                .write(folder.newFile("new.jar"), "p.Base", "p.Impl");
+        final Options options = createOptions(oldArchive, newArchive);
+        for (String engine : new String[]{ComparisonEngine.JAPICMP, ComparisonEngine.SIGNATURE}) {
+            assertEquals(engine, ImmutableList.of("p.Base"), getChangedClasses(compare(engine, options)));
+        }
+    }
+
+    private static List<String> getChangedClasses(BinaryChanges changes) {
+        final List<String> names = Lists.newArrayList();
+        for (JApiClass c : changes.getChangedClasses()) {
+            names.add(c.getFullyQualifiedName());
+        }
+        return names;
+    }
+
+    /**
+     * Changes in the implementation of package private classes do not make the signature engine compare them.
+     */
+    @Test
+    public void packagePrivateImplementationChange() throws IOException {
+        final File oldArchive = new TestArchive()
+                .add("p.Base", null, false, "public int foo() { return 1; }")
+                .add("p.Impl", "p.Base", true)
+                .write(folder.newFile("old.jar"), "p.Base", "p.Impl");
+        final File newArchive = new TestArchive()
+                .add("p.Base", null, false, "public int foo() { return 2; }")
+                .add("p.Impl", "p.Base", true)
+                .write(folder.newFile("new.jar"), "p.Base", "p.Impl");
+        final Options options = createOptions(oldArchive, newArchive);
+        assertTrue(ComparisonEngine.of(ComparisonEngine.SIGNATURE, folder.newFolder(), 1).select(options, null).isEmpty());
+        assertTrue(compare(ComparisonEngine.JAPICMP, options).isEmpty());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+import static org.jenkinsci.tools.bce.ArtifactMatcherTest.artifact;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link DependencyPolicy}.
+ *
+ * @author Andres Rodriguez
+ */
+public class DependencyPolicyTest {
+    private static void assertInvalid(String spec) {
+        try {
+            DependencyPolicy.of(spec);
+            fail("Accepted invalid spec " + spec);
+        } catch (MojoFailureException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void fixedPolicies() throws MojoFailureException {
+        assertSame(DependencyPolicy.NONE, DependencyPolicy.of(null));
+        assertSame(DependencyPolicy.NONE, DependencyPolicy.of(" "));
+        assertSame(DependencyPolicy.NONE, DependencyPolicy.of("none"));
+        assertSame(DependencyPolicy.ALL, DependencyPolicy.of("all"));
+        assertFalse(DependencyPolicy.NONE.isTransitive());
+        assertFalse(DependencyPolicy.NONE.include(artifact("org.acme", "lib")));
+        assertTrue(DependencyPolicy.ALL.isTransitive());
+        assertTrue(DependencyPolicy.ALL.include(artifact("org.acme", "lib")));
+    }
+
+    @Test
+    public void includeAndExclude() throws MojoFailureException {
+        final String entries = "org.acme, com.example:lib";
+        final DependencyPolicy include = DependencyPolicy.of("include:" + entries);
+        final DependencyPolicy exclude = DependencyPolicy.of("exclude:" + entries);
+        for (Artifact a : new Artifact[]{artifact("org.acme", "any"), artifact("com.example", "lib")}) {
+            assertTrue(include.include(a));
+            assertFalse(exclude.include(a));
+        }
+        for (Artifact a : new Artifact[]{artifact("org.acme.sub", "any"), artifact("com.example", "other")}) {
+            assertFalse(include.include(a));
+            assertTrue(exclude.include(a));
+        }
+        assertTrue(include.isTransitive());
+        assertTrue(exclude.isTransitive());
+    }
+
+    @Test
+    public void globsAndRanges() throws MojoFailureException {
+        final DependencyPolicy policy = DependencyPolicy.of("include:org.jenkins-ci.*:*-api:[1.0,2.0), org.acme:lib:(,1.5],[3.0,), net.?cme, com.example:lib:1.0");
+        assertTrue(policy.include(artifact("org.jenkins-ci.plugins", "credentials-api", "1.2")));
+        assertFalse(policy.include(artifact("org.jenkins-ci.plugins", "credentials-api", "2.0")));
+        assertFalse(policy.include(artifact("org.jenkins-ci.plugins", "credentials", "1.2")));
+        assertTrue(policy.include(artifact("org.acme", "lib", "1.5")));
+        assertFalse(policy.include(artifact("org.acme", "lib", "2.0")));
+        assertTrue(policy.include(artifact("org.acme", "lib", "3.1")));
+        assertTrue(policy.include(artifact("net.xcme", "any")));
+        assertFalse(policy.include(artifact("net.acme.sub", "any")));
+        assertTrue(policy.include(artifact("com.example", "lib", "1.0")));
+        assertFalse(policy.include(artifact("com.example", "lib", "1.0.1")));
+    }
+
+    @Test
+    public void excludedArtifacts() throws MojoFailureException {
+        final Artifact optional = artifact("org.acme", "lib");
+        optional.setOptional(true);
+        assertFalse(DependencyPolicy.ALL.include(optional));
+        assertFalse(DependencyPolicy.ALL.include(artifact("com.google.code.findbugs", "jsr305")));
+        assertFalse(DependencyPolicy.of("include:com.google.code.findbugs").include(artifact("com.google.code.findbugs", "annotations")));
+    }
+
+    @Test
+    public void invalidSpecs() {
+        assertInvalid("some:org.acme");
+        assertInvalid("org.acme");
+        assertInvalid("include:");
+        assertInvalid("exclude: , ");
+        assertInvalid("include:a:b:1.0:jar");
+        assertInvalid("include:a:b:[1.0");
+    }
+}
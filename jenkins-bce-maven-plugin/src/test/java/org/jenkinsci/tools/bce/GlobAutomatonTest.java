@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link GlobAutomaton}.
+ *
+ * @author Andres Rodriguez
+ */
+public class GlobAutomatonTest {
+    private static ImmutableSet<String> match(GlobAutomaton<String> automaton, String input) {
+        return ImmutableSet.copyOf(automaton.match(input));
+    }
+
+    @Test
+    public void isGlob() {
+        assertTrue(GlobAutomaton.isGlob("org.*"));
+        assertTrue(GlobAutomaton.isGlob("lib-?"));
+        assertFalse(GlobAutomaton.isGlob("org.acme"));
+    }
+
+    @Test
+    public void wildcards() {
+        final GlobAutomaton<String> automaton = new GlobAutomaton<String>(':');
+        automaton.add("org.*:lib", "star");
+        automaton.add("org.acme:lib-?", "question");
+        automaton.add("org.acme:**", "stars");
+        automaton.add("org.acme:lib-1", "literal");
+        assertEquals(ImmutableSet.of("question", "stars", "literal"), match(automaton, "org.acme:lib-1"));
+        assertEquals(ImmutableSet.of("star", "stars"), match(automaton, "org.acme:lib"));
+        assertEquals(ImmutableSet.of("stars"), match(automaton, "org.acme:lib-10"));
+        assertEquals(ImmutableSet.of("stars"), match(automaton, "org.acme:"));
+        assertEquals(ImmutableSet.of("star"), match(automaton, "org.:lib"));
+        assertEquals(ImmutableSet.of(), match(automaton, "com.acme:lib"));
+    }
+
+    @Test
+    public void separator() {
+        final GlobAutomaton<String> automaton = new GlobAutomaton<String>(':');
+        automaton.add("*", "star");
+        automaton.add("a?b", "question");
+        assertEquals(ImmutableSet.of("star"), match(automaton, "org.acme"));
+        assertEquals(ImmutableSet.of(), match(automaton, "org:acme"));
+        assertEquals(ImmutableSet.of("star", "question"), match(automaton, "a.b"));
+        assertEquals(ImmutableSet.of(), match(automaton, "a:b"));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link IncrementalState}.
+ *
+ * @author Andres Rodriguez
+ */
+public class IncrementalStateTest {
+    private static final String KEY = "key";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private Map<String, ClassInfo> classes;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "state/incremental.json");
+        classes = index(new TestArchive()
+                .add("p.A", null, true, "public int a() { return 1; }")
+                .add("p.B", "p.A", true)
+                .add("p.C", null, true), "p.A", "p.B", "p.C");
+    }
+
+    private static Map<String, ClassInfo> index(TestArchive archive, String... names) throws IOException {
+        final Map<String, ClassInfo> index = Maps.newHashMap();
+        for (String name : names) {
+            index.put(name, ClassInfo.of(archive.getBytes(name)));
+        }
+        return index;
+    }
+
+    private IncrementalState saveAndLoad(BinaryChanges changes) throws IOException {
+        IncrementalState.of(KEY, classes, changes).save(file);
+        final IncrementalState state = IncrementalState.load(file, KEY);
+        assertNotNull(state);
+        return state;
+    }
+
+    @Test
+    public void unchanged() throws IOException {
+        assertEquals(ImmutableSet.of(), saveAndLoad(BinaryChanges.builder().build()).getDirtyClasses(classes));
+        // Only the state file is left
+        assertEquals(1, file.getParentFile().list().length);
+    }
+
+    @Test
+    public void changedDigestWithSubtypes() throws IOException {
+        final IncrementalState state = saveAndLoad(BinaryChanges.builder().build());
+        final Map<String, ClassInfo> current = index(new TestArchive()
+                .add("p.A", null, true, "public int a() { return 2; }")
+                .add("p.B", "p.A", true)
+                .add("p.C", null, true), "p.A", "p.B", "p.C");
+        assertEquals(ImmutableSet.of("p.A", "p.B"), state.getDirtyClasses(current));
+    }
+
+    @Test
+    public void addedAndRemovedClasses() throws IOException {
+        final IncrementalState state = saveAndLoad(BinaryChanges.builder().build());
+        final Map<String, ClassInfo> current = index(new TestArchive()
+                .add("p.A", null, true, "public int a() { return 1; }")
+                .add("p.B", "p.A", true)
+                .add("p.D", null, true), "p.A", "p.B", "p.D");
+        assertEquals(ImmutableSet.of("p.C", "p.D"), state.getDirtyClasses(current));
+    }
+
+    @Test
+    public void previouslyFailedClasses() throws IOException {
+        Files.createParentDirs(file);
+        Files.write("{\"key\":\"key\",\"classes\":[{\"name\":\"p.C\",\"failed\":true}]}", file, Charsets.UTF_8);
+        final IncrementalState state = IncrementalState.load(file, KEY);
+        assertNotNull(state);
+        // The digests of p.A and p.B are unknown, so they are compared again too
+        assertEquals(ImmutableSet.of("p.A", "p.B", "p.C"), state.getDirtyClasses(classes));
+    }
+
+    @Test
+    public void reusedVerdicts() throws IOException {
+        final IncrementalState state = saveAndLoad(BinaryChanges.builder().accepted("p.A").ignored("p.C").build());
+        final BinaryChanges reused = state.reuse(ImmutableSet.of("p.A")).build();
+        assertEquals(ImmutableSet.of(), reused.getAcceptedClasses());
+        assertEquals(ImmutableSet.of("p.C"), reused.getIgnoredClasses());
+    }
+
+    @Test
+    public void unusableStates() throws IOException {
+        assertNull(IncrementalState.load(file, KEY));
+        IncrementalState.of(KEY, classes, BinaryChanges.builder().build()).save(file);
+        assertNull(IncrementalState.load(file, "other"));
+        Files.write("{\"classes\":[]}", file, Charsets.UTF_8);
+        assertNull(IncrementalState.load(file, KEY));
+        Files.write("{\"key\":\"key\",\"classes\":[{\"name\":", file, Charsets.UTF_8);
+        assertNull(IncrementalState.load(file, KEY));
+    }
+}
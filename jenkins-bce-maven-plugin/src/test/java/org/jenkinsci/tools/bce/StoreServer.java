@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.squareup.okhttp.OkHttpClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded HTTP server standing in for a remote cache. It keeps the entries in memory and records the requests.
+ *
+ * @author Andres Rodriguez
+ */
+final class StoreServer implements AutoCloseable {
+    private final HttpServer server;
+    private final Map<String, byte[]> entries = Maps.newConcurrentMap();
+    private final List<String> requests = Lists.newArrayList();
+    /**
+     * Status to answer every request with, if not zero.
+     */
+    private volatile int status;
+
+    StoreServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cache/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    StoreServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String key = exchange.getRequestURI().getPath().substring("/cache/".length());
+        synchronized (requests) {
+            requests.add(method + ' ' + key);
+        }
+        if (status != 0) {
+            exchange.sendResponseHeaders(status, -1);
+        } else if ("PUT".equals(method)) {
+            try (InputStream is = exchange.getRequestBody()) {
+                entries.put(key, ByteStreams.toByteArray(is));
+            }
+            exchange.sendResponseHeaders(201, -1);
+        } else if (entries.containsKey(key)) {
+            final byte[] entry = entries.get(key);
+            exchange.sendResponseHeaders(200, entry.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(entry);
+            }
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+    }
+
+    /**
+     * @return A client of the server.
+     */
+    CacheStore createStore() {
+        return CacheStores.of(String.format("http://127.0.0.1:%d/cache", server.getAddress().getPort()), new OkHttpClient());
+    }
+
+    Map<String, byte[]> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The requests received, as method and key, and forgets them.
+     */
+    List<String> takeRequests() {
+        synchronized (requests) {
+            final List<String> taken = ImmutableList.copyOf(requests);
+            requests.clear();
+            return taken;
+        }
+    }
+
+    /**
+     * Answers every request with the provided status, or serves the entries again if zero.
+     */
+    void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
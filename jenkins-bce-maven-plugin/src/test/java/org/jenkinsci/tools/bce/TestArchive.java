@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import javassist.Modifier;
+import javassist.NotFoundException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Builder of small class archives for the tests. Each builder has its own class pool, so the same class names can be
+ * defined in the old and the new version.
+ *
+ * @author Andres Rodriguez
+ */
+final class TestArchive {
+    private final ClassPool pool = new ClassPool(true);
+
+    /**
+     * Defines a class.
+     *
+     * @param name       Class name.
+     * @param superclass Superclass name, or {@code null} for {@link Object}.
+     * @param isPublic   Whether the class is public or package private.
+     * @param methods    Source of the methods of the class.
+     */
+    TestArchive add(String name, String superclass, boolean isPublic, String... methods) {
+        try {
+            final CtClass klass = superclass == null ? pool.makeClass(name) : pool.makeClass(name, pool.get(superclass));
+            klass.setModifiers(isPublic ? Modifier.PUBLIC : 0);
+            for (String method : methods) {
+                klass.addMethod(CtNewMethod.make(method, klass));
+            }
+            return this;
+        } catch (NotFoundException | CannotCompileException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * @return The class file of a defined class.
+     */
+    byte[] getBytes(String name) throws IOException {
+        try {
+            final CtClass klass = pool.get(name);
+            klass.defrost();
+            return klass.toBytecode();
+        } catch (NotFoundException | CannotCompileException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes the defined classes to an archive.
+     *
+     * @param file    Archive to write.
+     * @param classes Names of the classes to include.
+     * @return The written archive.
+     */
+    File write(File file, String... classes) throws IOException {
+        try (JarOutputStream os = new JarOutputStream(new FileOutputStream(file))) {
+            for (String name : classes) {
+                os.putNextEntry(new JarEntry(ClassArchives.getEntryName(name)));
+                os.write(getBytes(name));
+                os.closeEntry();
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link UpdateCenterIndex}.
+ *
+ * @author Andres Rodriguez
+ */
+public class UpdateCenterIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File source;
+    private File index;
+
+    @Before
+    public void setUp() {
+        source = new File(folder.getRoot(), "update-center.json");
+        index = new File(folder.getRoot(), "update-center.idx");
+    }
+
+    private void write(String plugins, long lastModified) throws IOException {
+        Files.write("updateCenter.post(\n{\"connectionCheckUrl\":\"http://www.google.com/\",\"plugins\":{" + plugins
+                + "},\"core\":{\"name\":\"core\",\"version\":\"1.642\"}}\n);", source, Charsets.UTF_8);
+        assertTrue(source.setLastModified(lastModified));
+    }
+
+    private static String plugin(String artifactId, String version) {
+        return "\"" + artifactId + "\":{\"name\":\"" + artifactId + "\",\"dependencies\":[{\"name\":\"other\"}],"
+                + "\"gav\":\"org.jenkins-ci.plugins:" + artifactId + ":" + version + "\",\"version\":\"" + version + "\"}";
+    }
+
+    @Test
+    public void lookups() throws IOException {
+        write(plugin("git", "2.4.1") + "," + plugin("credentials", "1.24") + ",\"broken\":{\"name\":\"broken\"},"
+                + plugin("ant", "1.2"), 1000000L);
+        final UpdateCenterIndex ucIndex = UpdateCenterIndex.of(source);
+        assertTrue(index.isFile());
+        assertEquals(3, ucIndex.size());
+        assertEquals("org.jenkins-ci.plugins:ant:1.2", ucIndex.get("ant"));
+        assertEquals("org.jenkins-ci.plugins:credentials:1.24", ucIndex.get("credentials"));
+        assertEquals("org.jenkins-ci.plugins:git:2.4.1", ucIndex.get("git"));
+        assertNull(ucIndex.get("broken"));
+        assertNull(ucIndex.get("a"));
+        assertNull(ucIndex.get("cvs"));
+        assertNull(ucIndex.get("gitlab"));
+        assertNull(ucIndex.get(""));
+        // Reopening uses the existing index
+        final long built = index.lastModified();
+        assertEquals("org.jenkins-ci.plugins:git:2.4.1", UpdateCenterIndex.of(source).get("git"));
+        assertEquals(built, index.lastModified());
+    }
+
+    @Test
+    public void emptyUpdateCenter() throws IOException {
+        write("", 1000000L);
+        final UpdateCenterIndex ucIndex = UpdateCenterIndex.of(source);
+        assertEquals(0, ucIndex.size());
+        assertNull(ucIndex.get("git"));
+    }
+
+    @Test
+    public void rebuiltWhenSourceChanges() throws IOException {
+        write(plugin("git", "2.4.1"), 1000000L);
+        assertEquals("org.jenkins-ci.plugins:git:2.4.1", UpdateCenterIndex.of(source).get("git"));
+        // Same length, only the modification time tells the change
+        write(plugin("git", "2.4.2"), 2000000L);
+        UpdateCenterIndex ucIndex = UpdateCenterIndex.of(source);
+        assertEquals("org.jenkins-ci.plugins:git:2.4.2", ucIndex.get("git"));
+        // Same modification time, only the length tells the change
+        write(plugin("git", "2.4.10") + "," + plugin("ant", "1.2"), 2000000L);
+        ucIndex = UpdateCenterIndex.of(source);
+        assertEquals(2, ucIndex.size());
+        assertEquals("org.jenkins-ci.plugins:git:2.4.10", ucIndex.get("git"));
+        assertEquals("org.jenkins-ci.plugins:ant:1.2", ucIndex.get("ant"));
+    }
+
+    @Test
+    public void corruptedIndexIsRebuilt() throws IOException {
+        write(plugin("git", "2.4.1"), 1000000L);
+        Files.write(new byte[]{1, 2, 3}, index);
+        assertEquals("org.jenkins-ci.plugins:git:2.4.1", UpdateCenterIndex.of(source).get("git"));
+        Files.write(new byte[64], index);
+        assertEquals("org.jenkins-ci.plugins:git:2.4.1", UpdateCenterIndex.of(source).get("git"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2015 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.tools.bce;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import japicmp.model.JApiClass;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the remote entries of {@link VerdictCache}.
+ *
+ * @author Andres Rodriguez
+ */
+public class VerdictCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StoreServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StoreServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private VerdictCache createCache() throws IOException {
+        return new VerdictCache(folder.newFolder(), server.createStore(), new SystemStreamLog());
+    }
+
+    private void put(VerdictCache cache) throws IOException {
+        final File report = folder.newFile();
+        Files.write("report", report, Charsets.UTF_8);
+        cache.put("fp", BinaryChanges.of(Collections.<JApiClass>emptyList()), null, report, report);
+    }
+
+    @Test
+    public void uploadsVerdictLast() throws IOException {
+        put(createCache());
+        assertEquals(ImmutableList.of("PUT verdicts/fp/report.json", "PUT verdicts/fp/junit.xml",
+                "PUT verdicts/fp/verdict.json"), server.takeRequests());
+    }
+
+    @Test
+    public void fetchesVerdictFirst() throws IOException {
+        put(createCache());
+        server.takeRequests();
+        final VerdictCache cache = createCache();
+        final VerdictCache.Verdict verdict = cache.get("fp");
+        assertNotNull(verdict);
+        assertFalse(verdict.isFailed());
+        assertNull(verdict.getTranscript());
+        assertEquals("report", Files.toString(verdict.getReport(), Charsets.UTF_8));
+        assertEquals(ImmutableList.of("GET verdicts/fp/verdict.json", "GET verdicts/fp/transcript.txt",
+                "GET verdicts/fp/report.json", "GET verdicts/fp/junit.xml"), server.takeRequests());
+        // Served locally from then on
+        assertNotNull(cache.get("fp"));
+        assertEquals(ImmutableList.<String>of(), server.takeRequests());
+    }
+
+    @Test
+    public void missFetchesVerdictOnly() throws IOException {
+        assertNull(createCache().get("fp"));
+        assertEquals(ImmutableList.of("GET verdicts/fp/verdict.json"), server.takeRequests());
+    }
+
+    @Test
+    public void remoteErrorIsMiss() throws IOException {
+        put(createCache());
+        server.setStatus(500);
+        assertNull(createCache().get("fp"));
+    }
+}